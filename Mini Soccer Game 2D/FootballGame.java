@@ -4,58 +4,106 @@ import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.border.LineBorder;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.AffineTransform;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.LineMetrics;
 import java.awt.geom.Ellipse2D;
-import java.awt.geom.Line2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 class SoundPlayer {
-    private Clip backgroundClip;
+    private final AudioEngine engine = new AudioEngine();
+    private final AudioEngine.Cue goalCrowd = engine.cue("goal_crowd.wav", 0.9f, false);
+    private final AudioEngine.Cue goal = engine.cue("goal.wav", 1f, false);
+    private final AudioEngine.Cue whatAGoal = engine.cue("what_a_goal.wav", 1f, false);
+    private final AudioEngine.Cue unstoppable = engine.cue("unstoppable.wav", 1f, false);
+    private final AudioEngine.Cue pass = engine.cue("pass.wav", 0.8f, true);
+    private final AudioEngine.Cue shoot = engine.cue("shoot.wav", 1f, true);
+
+    public SoundPlayer() {
+        engine.start();
+    }
 
     public void playMenuMusic() {
-        playLoopingSound("main_tune.wav");
+        engine.playLoop("main_tune.wav", 0.8f);
     }
 
     public void playStadiumSound() {
-        playLoopingSound("stadium_crowd.wav");
+        engine.playLoop("stadium_crowd.wav", 0.7f);
     }
 
     public void playGoalSound(int score) {
-        playSoundEffect("goal_crowd.wav");
+        engine.duckLoop();
+        engine.play(goalCrowd);
         switch (score) {
             case 1:
-                playSoundEffect("goal.wav");
+                engine.play(goal);
                 break;
             case 2:
-                playSoundEffect("what_a_goal.wav");
+                engine.play(whatAGoal);
                 break;
             default:
-                playSoundEffect("unstoppable.wav");
+                engine.play(unstoppable);
                 break;
         }
     }
 
     public void playPassSound(int passCount) {
-        playSoundEffect("pass.wav");
+        engine.play(pass);
     }
 
     public void playShootSound() {
-        playSoundEffect("shoot.wav");
+        engine.play(shoot);
     }
 
     public void playMissSound() {
@@ -64,40 +112,438 @@ class SoundPlayer {
     public void playSaveSound() {
     }
 
+    public void setBallPosition(double x) {
+        double relative = (x - MatchSimulation.PLAYABLE_X) / MatchSimulation.PLAYABLE_WIDTH;
+        engine.setPan((float) (relative * 2 - 1));
+    }
 
-    private void playLoopingSound(String filePath) {
-        stopMusic();
-        try {
-            File audioFile = new File(filePath);
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(audioFile);
-            backgroundClip = AudioSystem.getClip();
-            backgroundClip.open(audioStream);
-            backgroundClip.loop(Clip.LOOP_CONTINUOUSLY);
-            backgroundClip.start();
-        } catch (Exception e) {
-            System.err.println("Error playing looping sound: " + filePath);
-            e.printStackTrace();
+    public void stopMusic() {
+        engine.stopLoop();
+    }
+}
+
+class SoundEffect {
+    private final float sampleRate;
+    private final float[] samples;
+
+    private SoundEffect(float sampleRate, float[] samples) {
+        this.sampleRate = sampleRate;
+        this.samples = samples;
+    }
+
+    public static SoundEffect decode(String path) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(new File(path))) {
+            AudioFormat sourceFormat = source.getFormat();
+            int channels = sourceFormat.getChannels();
+            AudioFormat pcmFormat = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sourceFormat.getSampleRate(), 16,
+                    channels, channels * 2, sourceFormat.getSampleRate(), false);
+            try (AudioInputStream decoded = AudioSystem.getAudioInputStream(pcmFormat, source)) {
+                byte[] pcm = decoded.readAllBytes();
+                int frames = pcm.length / (channels * 2);
+                float[] samples = new float[frames * 2];
+                for (int frame = 0; frame < frames; frame++) {
+                    int offset = frame * channels * 2;
+                    float left = ((short) ((pcm[offset] & 0xff) | (pcm[offset + 1] << 8))) / 32768f;
+                    float right = left;
+                    if (channels > 1) {
+                        right = ((short) ((pcm[offset + 2] & 0xff) | (pcm[offset + 3] << 8))) / 32768f;
+                    }
+                    samples[frame * 2] = left;
+                    samples[frame * 2 + 1] = right;
+                }
+                return new SoundEffect(sourceFormat.getSampleRate(), samples);
+            }
         }
     }
 
-    private void playSoundEffect(String filePath) {
-        try {
-            File audioFile = new File(filePath);
-            AudioInputStream audioStream = AudioSystem.getAudioInputStream(audioFile);
-            Clip effectClip = AudioSystem.getClip();
-            effectClip.open(audioStream);
-            effectClip.start();
-        } catch (Exception e) {
-            System.err.println("Error playing sound effect: " + filePath);
-            e.printStackTrace();
+    public float getSampleRate() { return sampleRate; }
+    public float[] getSamples() { return samples; }
+    public int getFrameCount() { return samples.length / 2; }
+}
+
+class LoopStream {
+    private static final int RING_FRAMES = 8192;
+
+    private final String path;
+    private final float gain;
+    private final ByteBuffer data;
+    private final int channels;
+    private final int frameCount;
+    private final double step;
+    private final float[] ring = new float[RING_FRAMES * 2];
+    private volatile long written;
+    private volatile long read;
+    private volatile boolean claimed;
+    private volatile boolean finished;
+    private double position;
+
+    private LoopStream(String path, float gain, ByteBuffer data, int channels, float sampleRate) {
+        this.path = path;
+        this.gain = gain;
+        this.data = data;
+        this.channels = channels;
+        this.frameCount = data.remaining() / (channels * 2);
+        this.step = sampleRate / AudioEngine.SAMPLE_RATE;
+    }
+
+    public static LoopStream open(String path, float gain) throws IOException, UnsupportedAudioFileException {
+        MappedByteBuffer file;
+        try (RandomAccessFile raf = new RandomAccessFile(path, "r"); FileChannel channel = raf.getChannel()) {
+            file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        file.order(ByteOrder.LITTLE_ENDIAN);
+        if (file.remaining() < 12 || file.getInt(0) != 0x46464952 || file.getInt(8) != 0x45564157) {
+            throw new UnsupportedAudioFileException("Not a RIFF/WAVE file: " + path);
+        }
+        int channels = 0;
+        int bits = 0;
+        float sampleRate = 0;
+        int offset = 12;
+        while (offset + 8 <= file.limit()) {
+            int id = file.getInt(offset);
+            int size = file.getInt(offset + 4);
+            int body = offset + 8;
+            if (id == 0x20746d66) {
+                int encoding = file.getShort(body) & 0xffff;
+                if (encoding != 1 && encoding != 0xfffe) {
+                    throw new UnsupportedAudioFileException("Only PCM music can be streamed: " + path);
+                }
+                channels = file.getShort(body + 2);
+                sampleRate = file.getInt(body + 4);
+                bits = file.getShort(body + 14);
+            } else if (id == 0x61746164) {
+                if (bits != 16 || channels < 1 || channels > 2) {
+                    throw new UnsupportedAudioFileException("Only 16-bit mono or stereo music can be streamed: " + path);
+                }
+                int length = Math.min(size, file.limit() - body);
+                ByteBuffer samples = file.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                samples.position(body).limit(body + length);
+                return new LoopStream(path, gain, samples.slice().order(ByteOrder.LITTLE_ENDIAN), channels, sampleRate);
+            }
+            offset = body + size + (size & 1);
         }
+        throw new UnsupportedAudioFileException("No audio data in " + path);
     }
 
-    public void stopMusic() {
-        if (backgroundClip != null) {
-            backgroundClip.stop();
-            backgroundClip.close();
-            backgroundClip = null;
+    public String getPath() { return path; }
+    public float getGain() { return gain; }
+    public boolean isClaimed() { return claimed; }
+    public void claim() { claimed = true; }
+    public boolean isFinished() { return finished; }
+    public void finish() { finished = true; }
+
+    public void fill() {
+        if (frameCount < 2) return;
+        long end = read + RING_FRAMES;
+        for (long frame = written; frame < end; frame++) {
+            int index = (int) position;
+            int next = index + 1 == frameCount ? 0 : index + 1;
+            float fraction = (float) (position - index);
+            int slot = (int) (frame % RING_FRAMES) * 2;
+            float left = sample(index, 0);
+            float right = sample(index, channels - 1);
+            ring[slot] = left + (sample(next, 0) - left) * fraction;
+            ring[slot + 1] = right + (sample(next, channels - 1) - right) * fraction;
+            position += step;
+            if (position >= frameCount) {
+                position -= frameCount;
+            }
+            written = frame + 1;
+        }
+    }
+
+    public void mixInto(float[] mix, int frames, float startGain, float endGain) {
+        long available = written - read;
+        int count = (int) Math.min(frames, available);
+        float gainStep = (endGain - startGain) / frames;
+        float current = startGain;
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((read + i) % RING_FRAMES) * 2;
+            mix[i * 2] += ring[slot] * current;
+            mix[i * 2 + 1] += ring[slot + 1] * current;
+            current += gainStep;
+        }
+        read += count;
+    }
+
+    private float sample(int frame, int channel) {
+        return data.getShort((frame * channels + channel) * 2) / 32768f;
+    }
+}
+
+class AudioEngine {
+    public static final float SAMPLE_RATE = 44100f;
+    public static final int BLOCK_FRAMES = 256;
+    private static final int LINE_BUFFER_BLOCKS = 3;
+    private static final int MAX_VOICES = 12;
+    private static final int MAX_PENDING_TRIGGERS = 32;
+    private static final float DUCKED_GAIN = 0.3f;
+    private static final long DUCK_FRAMES = (long) (SAMPLE_RATE * 2.5);
+    private static final float GAIN_SMOOTHING = 0.1f;
+    private static final int CROSSFADE_FRAMES = (int) (SAMPLE_RATE * 1.5);
+    private static final long STREAM_REFILL_NANOS = 5_000_000L;
+
+    public static final class Cue {
+        private final String path;
+        private final float gain;
+        private final boolean positional;
+        private SoundEffect effect;
+
+        private Cue(String path, float gain, boolean positional) {
+            this.path = path;
+            this.gain = gain;
+            this.positional = positional;
+        }
+    }
+
+    private static final class Voice {
+        SoundEffect effect;
+        double position;
+        double step;
+        float gain;
+        boolean positional;
+        boolean active;
+        long startedAt;
+    }
+
+    private final List<Cue> cues = new ArrayList<>();
+    private final ArrayBlockingQueue<Cue> triggers = new ArrayBlockingQueue<>(MAX_PENDING_TRIGGERS);
+    private final Voice[] voices = new Voice[MAX_VOICES];
+    private final float[] mix = new float[BLOCK_FRAMES * 2];
+    private final byte[] output = new byte[BLOCK_FRAMES * 4];
+    private final AtomicInteger duckRequests = new AtomicInteger();
+    private final List<LoopStream> streams = new ArrayList<>();
+    private volatile String requestedLoopPath;
+    private volatile float requestedLoopGain = 1f;
+    private volatile LoopStream loopStream;
+    private volatile float pan;
+    private volatile boolean running;
+    private Thread mixerThread;
+    private Thread streamerThread;
+    private LoopStream currentLoop;
+    private LoopStream fadingLoop;
+    private int crossfadeFrames;
+    private long renderedFrames;
+    private long duckUntilFrame;
+    private int seenDuckRequests;
+    private float loopDuckGain = 1f;
+
+    public AudioEngine() {
+        for (int i = 0; i < voices.length; i++) {
+            voices[i] = new Voice();
+        }
+    }
+
+    public synchronized Cue cue(String path, float gain, boolean positional) {
+        if (running) {
+            throw new IllegalStateException("Cues must be registered before the engine starts");
+        }
+        Cue cue = new Cue(path, gain, positional);
+        cues.add(cue);
+        return cue;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        mixerThread = new Thread(this::runMixer, "audio-mixer");
+        mixerThread.setDaemon(true);
+        mixerThread.setPriority(Thread.MAX_PRIORITY);
+        mixerThread.start();
+        streamerThread = new Thread(this::runStreamer, "audio-streamer");
+        streamerThread.setDaemon(true);
+        streamerThread.start();
+    }
+
+    public void play(Cue cue) {
+        triggers.offer(cue);
+    }
+
+    public void playLoop(String path, float gain) {
+        requestedLoopGain = gain;
+        requestedLoopPath = path;
+        LockSupport.unpark(streamerThread);
+    }
+
+    public void stopLoop() {
+        requestedLoopPath = null;
+        LockSupport.unpark(streamerThread);
+    }
+
+    public void setPan(float pan) {
+        this.pan = Math.max(-1f, Math.min(1f, pan));
+    }
+
+    public void duckLoop() {
+        duckRequests.incrementAndGet();
+    }
+
+    public void shutdown() {
+        running = false;
+        if (mixerThread != null) {
+            mixerThread.interrupt();
+        }
+        if (streamerThread != null) {
+            streamerThread.interrupt();
+        }
+    }
+
+    private void runMixer() {
+        for (Cue cue : cues) {
+            try {
+                cue.effect = SoundEffect.decode(cue.path);
+            } catch (Exception e) {
+                System.err.println("Could not load sound effect: " + cue.path);
+            }
+        }
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 2, true, false);
+        try (SourceDataLine line = AudioSystem.getSourceDataLine(format)) {
+            line.open(format, output.length * LINE_BUFFER_BLOCKS);
+            line.start();
+            while (running) {
+                renderBlock();
+                line.write(output, 0, output.length);
+            }
+            line.drain();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.err.println("No audio output line available: " + e.getMessage());
+            running = false;
+        }
+    }
+
+    private void runStreamer() {
+        String openedPath = null;
+        while (running) {
+            String path = requestedLoopPath;
+            if (!Objects.equals(path, openedPath)) {
+                openedPath = path;
+                LoopStream next = null;
+                if (path != null) {
+                    try {
+                        next = LoopStream.open(path, requestedLoopGain);
+                        next.fill();
+                        streams.add(next);
+                    } catch (Exception e) {
+                        System.err.println("Error playing looping sound: " + path);
+                    }
+                }
+                loopStream = next;
+            }
+            LoopStream published = loopStream;
+            streams.removeIf(stream -> stream.isFinished() || (!stream.isClaimed() && stream != published));
+            for (LoopStream stream : streams) {
+                stream.fill();
+            }
+            LockSupport.parkNanos(STREAM_REFILL_NANOS);
+        }
+    }
+
+    private void renderBlock() {
+        Cue cue;
+        while ((cue = triggers.poll()) != null) {
+            if (cue.effect != null) {
+                startVoice(cue);
+            }
+        }
+        LoopStream requested = loopStream;
+        if (requested != currentLoop) {
+            if (fadingLoop != null) {
+                fadingLoop.finish();
+            }
+            fadingLoop = currentLoop;
+            currentLoop = requested;
+            if (currentLoop != null) {
+                currentLoop.claim();
+            }
+            crossfadeFrames = 0;
+        }
+
+        Arrays.fill(mix, 0f);
+        double angle = (pan + 1) * Math.PI / 4;
+        float panLeft = (float) Math.cos(angle) * (float) Math.sqrt(2);
+        float panRight = (float) Math.sin(angle) * (float) Math.sqrt(2);
+        for (Voice voice : voices) {
+            if (voice.active) {
+                renderVoice(voice, voice.positional ? panLeft : 1f, voice.positional ? panRight : 1f, voice.gain, voice.gain);
+            }
+        }
+        renderLoops();
+
+        for (int i = 0; i < mix.length; i++) {
+            float sample = Math.max(-1f, Math.min(1f, mix[i]));
+            int value = (int) (sample * 32767f);
+            output[i * 2] = (byte) value;
+            output[i * 2 + 1] = (byte) (value >> 8);
+        }
+        renderedFrames += BLOCK_FRAMES;
+    }
+
+    private void startVoice(Cue cue) {
+        Voice target = voices[0];
+        for (Voice voice : voices) {
+            if (!voice.active) {
+                target = voice;
+                break;
+            }
+            if (voice.startedAt < target.startedAt) {
+                target = voice;
+            }
+        }
+        target.effect = cue.effect;
+        target.position = 0;
+        target.step = cue.effect.getSampleRate() / SAMPLE_RATE;
+        target.gain = cue.gain;
+        target.positional = cue.positional;
+        target.active = true;
+        target.startedAt = renderedFrames;
+    }
+
+    private void renderLoops() {
+        int requests = duckRequests.get();
+        if (requests != seenDuckRequests) {
+            seenDuckRequests = requests;
+            duckUntilFrame = renderedFrames + DUCK_FRAMES;
+        }
+        float target = renderedFrames < duckUntilFrame ? DUCKED_GAIN : 1f;
+        float duckStart = loopDuckGain;
+        loopDuckGain += (target - loopDuckGain) * GAIN_SMOOTHING;
+
+        float fadeStart = Math.min(1f, (float) crossfadeFrames / CROSSFADE_FRAMES);
+        crossfadeFrames = Math.min(CROSSFADE_FRAMES, crossfadeFrames + BLOCK_FRAMES);
+        float fadeEnd = (float) crossfadeFrames / CROSSFADE_FRAMES;
+        if (currentLoop != null) {
+            float gain = currentLoop.getGain();
+            currentLoop.mixInto(mix, BLOCK_FRAMES, gain * duckStart * fadeStart, gain * loopDuckGain * fadeEnd);
+        }
+        if (fadingLoop != null) {
+            float gain = fadingLoop.getGain();
+            fadingLoop.mixInto(mix, BLOCK_FRAMES, gain * duckStart * (1 - fadeStart), gain * loopDuckGain * (1 - fadeEnd));
+            if (fadeEnd >= 1f) {
+                fadingLoop.finish();
+                fadingLoop = null;
+            }
+        }
+    }
+
+    private void renderVoice(Voice voice, float leftPan, float rightPan, float startGain, float endGain) {
+        float[] samples = voice.effect.getSamples();
+        int frames = voice.effect.getFrameCount();
+        float gainStep = (endGain - startGain) / BLOCK_FRAMES;
+        float gain = startGain;
+        for (int i = 0; i < BLOCK_FRAMES; i++) {
+            int frame = (int) voice.position;
+            if (frame >= frames - 1) {
+                voice.active = false;
+                return;
+            }
+            float fraction = (float) (voice.position - frame);
+            int index = frame * 2;
+            float left = samples[index] + (samples[index + 2] - samples[index]) * fraction;
+            float right = samples[index + 1] + (samples[index + 3] - samples[index + 1]) * fraction;
+            mix[i * 2] += left * gain * leftPan;
+            mix[i * 2 + 1] += right * gain * rightPan;
+            voice.position += voice.step;
+            gain += gainStep;
         }
     }
 }
@@ -116,19 +562,20 @@ public class FootballGame {
             JPanel mainPanel = new JPanel(cardLayout);
 
             MatchHistory matchHistory = new MatchHistory();
+            Runtime.getRuntime().addShutdownHook(new Thread(matchHistory::close, "history-flush"));
 
             MainMenuPanel mainMenu = new MainMenuPanel(matchHistory, () -> cardLayout.show(mainPanel, "difficulty"), () -> System.exit(0));
 
-            DifficultyPanel difficultyPanel = new DifficultyPanel(
-                    () -> cardLayout.show(mainPanel, "team_selection"),
-                    () -> cardLayout.show(mainPanel, "menu")
-            );
-
             GamePanel gamePanel = new GamePanel(frame, soundPlayer, matchHistory, () -> {
                 soundPlayer.playMenuMusic();
                 cardLayout.show(mainPanel, "menu");
             });
 
+            DifficultyPanel difficultyPanel = new DifficultyPanel(difficulty -> {
+                gamePanel.setDifficulty(difficulty);
+                cardLayout.show(mainPanel, "team_selection");
+            }, () -> cardLayout.show(mainPanel, "menu"));
+
             TeamSelectionPanel teamSelectionPanel = new TeamSelectionPanel((userTeam, aiTeam) -> {
                 soundPlayer.playStadiumSound();
                 cardLayout.show(mainPanel, "game");
@@ -257,13 +704,38 @@ class MatchHistoryDialog extends JDialog {
         gbc.insets = new Insets(10, 20, 20, 20);
         mainPanel.add(titleLabel, gbc);
 
-        JTextArea historyArea = new JTextArea(matchHistory.getHistoryAsString());
-        historyArea.setFont(new Font("Monospaced", Font.PLAIN, 14));
-        historyArea.setEditable(false);
-        historyArea.setOpaque(false);
-        historyArea.setForeground(Color.WHITE);
-        
-        JScrollPane scrollPane = new JScrollPane(historyArea);
+        JComponent historyView;
+        if (matchHistory.size() == 0) {
+            JLabel emptyLabel = new JLabel(matchHistory.isLoaded() ? "No matches have been played yet." : "Loading match history...");
+            emptyLabel.setFont(new Font("Monospaced", Font.PLAIN, 14));
+            emptyLabel.setForeground(Color.WHITE);
+            emptyLabel.setVerticalAlignment(SwingConstants.TOP);
+            historyView = emptyLabel;
+        } else {
+            MatchHistoryListModel model = new MatchHistoryListModel(matchHistory);
+            addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    model.dispose();
+                }
+            });
+            JList<MatchResult> historyList = new JList<>(model);
+            historyList.setPrototypeCellValue(new MatchResult("ARGENTINA", 10, "ARGENTINA", 10, true, 10, 10));
+            historyList.setCellRenderer(new DefaultListCellRenderer() {
+                @Override
+                public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                    super.getListCellRendererComponent(list, value == null ? "Unreadable match record" : value.toString(), index, false, false);
+                    setOpaque(false);
+                    setForeground(Color.WHITE);
+                    return this;
+                }
+            });
+            historyList.setFont(new Font("Monospaced", Font.PLAIN, 14));
+            historyList.setOpaque(false);
+            historyView = historyList;
+        }
+
+        JScrollPane scrollPane = new JScrollPane(historyView);
         scrollPane.setPreferredSize(new Dimension(400, 250));
         scrollPane.setOpaque(false);
         scrollPane.getViewport().setOpaque(false);
@@ -414,6 +886,14 @@ class MatchResult implements Serializable {
         this.penalty2 = p2;
     }
 
+    public String getTeam1Name() { return team1Name; }
+    public int getTeam1Score() { return team1Score; }
+    public String getTeam2Name() { return team2Name; }
+    public int getTeam2Score() { return team2Score; }
+    public boolean isPenalty() { return isPenalty; }
+    public int getPenalty1() { return penalty1; }
+    public int getPenalty2() { return penalty2; }
+
     @Override
     public String toString() {
         String formattedTeam1 = team1Name.substring(0, 1).toUpperCase() + team1Name.substring(1).toLowerCase();
@@ -426,152 +906,811 @@ class MatchResult implements Serializable {
     }
 }
 
-class MatchHistory {
-    private List<MatchResult> results;
-    private static final String HISTORY_FILE = "match_history.txt";
+class MatchLog {
+    private static final int MAGIC = 0x4D484C32;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 48;
+    private static final int NAME_BYTES = 16;
+    private static final int TEAM1_OFFSET = 4;
+    private static final int TEAM2_OFFSET = 20;
+    private static final int FLAGS_OFFSET = 36;
+    private static final int SCORE1_OFFSET = 40;
+    private static final int SCORE2_OFFSET = 42;
+    private static final int PENALTY1_OFFSET = 44;
+    private static final int PENALTY2_OFFSET = 46;
+    private static final int PENALTY_FLAG = 1;
+
+    private final Path path;
+    private final Object writeLock = new Object();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private final byte[] name = new byte[NAME_BYTES];
+    private final CRC32 readCrc = new CRC32();
+    private FileChannel channel;
+    private MappedByteBuffer view;
+    private int recordCount;
+    private int publishedCount;
+    private long droppedRecords;
+
+    public MatchLog(Path path) {
+        this.path = path;
+    }
 
-    public MatchHistory() {
-        loadHistory();
+    public synchronized boolean exists() {
+        return Files.exists(path);
     }
 
-    public void addResult(MatchResult result) {
-        if (results == null) {
-            results = new ArrayList<>();
+    public void open() throws IOException {
+        synchronized (writeLock) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
         }
-        results.add(result);
-        saveHistory();
+        publish();
     }
 
-    @SuppressWarnings("unchecked")
-    private void loadHistory() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(HISTORY_FILE))) {
-            results = (List<MatchResult>) ois.readObject();
-        } catch (FileNotFoundException e) {
-            results = new ArrayList<>();
-        } catch (IOException | ClassNotFoundException e) {
-            System.err.println("Error loading match history: " + e.getMessage());
-            results = new ArrayList<>();
+    private void recover() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            writeFully(header(0), 0);
+            channel.force(true);
+            recordCount = 0;
+            droppedRecords = 0;
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        boolean headerIntact = size >= HEADER_BYTES && header.getInt(0) == MAGIC && header.getInt(4) == RECORD_BYTES;
+        droppedRecords = headerIntact ? header.getLong(8) : 0;
+        int records = (int) (Math.max(0, size - HEADER_BYTES) / RECORD_BYTES);
+        while (records > 0 && !isIntact(records - 1)) {
+            records--;
+        }
+        if (!headerIntact) {
+            System.err.println("Match history header is damaged, rebuilt it around " + records + " recovered records");
+            writeFully(header(0), 0);
+        }
+        long end = offsetOf(records);
+        if (end < size) {
+            quarantine(end, size);
+            channel.truncate(end);
+        }
+        if (!headerIntact || end < size) {
+            channel.force(true);
+        }
+        recordCount = records;
+        for (int i = 0; i < records; i++) {
+            if (!isIntact(i)) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    System.err.println("Could not compact damaged match records, leaving them in place: " + e.getMessage());
+                }
+                break;
+            }
         }
     }
-    private void saveHistory() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(HISTORY_FILE))) {
-            oos.writeObject(results);
-        } catch (IOException e) {
-            System.err.println("Error saving match history: " + e.getMessage());
+
+    public void append(MatchResult result) throws IOException {
+        synchronized (writeLock) {
+            record.clear();
+            writeName(TEAM1_OFFSET, result.getTeam1Name());
+            writeName(TEAM2_OFFSET, result.getTeam2Name());
+            record.put(FLAGS_OFFSET, (byte) (result.isPenalty() ? PENALTY_FLAG : 0));
+            record.putShort(SCORE1_OFFSET, (short) result.getTeam1Score());
+            record.putShort(SCORE2_OFFSET, (short) result.getTeam2Score());
+            record.putShort(PENALTY1_OFFSET, (short) result.getPenalty1());
+            record.putShort(PENALTY2_OFFSET, (short) result.getPenalty2());
+            crc.reset();
+            crc.update(record.array(), 4, RECORD_BYTES - 4);
+            record.putInt(0, (int) crc.getValue());
+            writeFully(record, offsetOf(recordCount));
+            recordCount++;
         }
     }
 
-    public String getHistoryAsString() {
-        if (results == null || results.isEmpty()) {
-            return "No matches have been played yet.";
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            channel.force(false);
         }
-        List<MatchResult> reversedResults = new ArrayList<>(results);
-        Collections.reverse(reversedResults);
-        return reversedResults.stream()
-                .map(MatchResult::toString)
-                .collect(Collectors.joining("\n"));
     }
-}
 
-enum Team {
-    ARGENTINA("ARG"),
-    BRAZIL("BRA"),
-    PORTUGAL("POR"),
-    GERMANY("GER");
+    public void publish() {
+        int appended;
+        synchronized (writeLock) {
+            appended = recordCount;
+        }
+        synchronized (this) {
+            publishedCount = appended;
+        }
+    }
 
-    private final String abbreviation;
+    public synchronized MatchResult read(int index) throws IOException {
+        if (index < 0 || index >= publishedCount) {
+            throw new IndexOutOfBoundsException("Match record " + index + " of " + publishedCount);
+        }
+        long end = offsetOf(publishedCount);
+        if (view == null || view.capacity() < end) {
+            view = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+        }
+        int offset = (int) offsetOf(index);
+        readCrc.reset();
+        readCrc.update(view.slice(offset + 4, RECORD_BYTES - 4));
+        if ((int) readCrc.getValue() != view.getInt(offset)) {
+            return null;
+        }
+        return new MatchResult(readName(offset + TEAM1_OFFSET), view.getShort(offset + SCORE1_OFFSET),
+                readName(offset + TEAM2_OFFSET), view.getShort(offset + SCORE2_OFFSET),
+                (view.get(offset + FLAGS_OFFSET) & PENALTY_FLAG) != 0,
+                view.getShort(offset + PENALTY1_OFFSET), view.getShort(offset + PENALTY2_OFFSET));
+    }
 
-    Team(String abbreviation) {
-        this.abbreviation = abbreviation;
+    private void compact() throws IOException {
+        Path temp = Paths.get(path + ".tmp");
+        try {
+            swapIn(temp, copyIntactRecords(temp));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
     }
 
-    public String getAbbreviation() {
-        return this.abbreviation;
+    private int copyIntactRecords(Path temp) throws IOException {
+        int kept = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             FileChannel rejected = FileChannel.open(Paths.get(path + ".corrupt"), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            out.position(HEADER_BYTES);
+            for (int i = 0; i < recordCount; i++) {
+                boolean intact = isIntact(i);
+                FileChannel target = intact ? out : rejected;
+                record.clear();
+                while (record.hasRemaining()) {
+                    target.write(record);
+                }
+                if (intact) kept++;
+            }
+            ByteBuffer header = header(droppedRecords + recordCount - kept);
+            for (long position = 0; header.hasRemaining(); ) {
+                position += out.write(header, position);
+            }
+            out.force(true);
+            rejected.force(true);
+        }
+        return kept;
     }
-}
 
-class MainMenuPanel extends JPanel {
-    private BufferedImage backgroundImage;
-    private final MatchHistory matchHistory;
+    private void swapIn(Path temp, int kept) throws IOException {
+        int damaged = recordCount - kept;
+        synchronized (this) {
+            releaseView();
+            channel.close();
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                } catch (IOException reopen) {
+                    e.addSuppressed(reopen);
+                }
+                throw e;
+            }
+            droppedRecords += damaged;
+            recordCount = kept;
+            publishedCount = Math.min(publishedCount, kept);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        System.err.println("Moved " + damaged + " damaged match records to " + path + ".corrupt, match statistics still count them");
+    }
 
-    public MainMenuPanel(MatchHistory matchHistory, Runnable onStart, Runnable onExit) {
-        this.matchHistory = matchHistory;
-        setPreferredSize(new Dimension(GamePanel.WIDTH, GamePanel.HEIGHT));
-        setLayout(new GridBagLayout());
+    public synchronized int size() {
+        return publishedCount;
+    }
+
+    public synchronized long getDroppedRecords() {
+        return droppedRecords;
+    }
+
+    public synchronized long getTotalRecords() {
+        return droppedRecords + publishedCount;
+    }
+
+    private ByteBuffer header(long dropped) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(RECORD_BYTES).putLong(dropped);
+        header.flip();
+        return header;
+    }
+
+    private void releaseView() {
+        if (view == null) return;
         try {
-            backgroundImage = ImageIO.read(new File("background.jpg"));
-        } catch (IOException e) {
-            System.err.println("Background image not found: background.jpg");
-            setBackground(new Color(0, 50, 0));
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            java.lang.reflect.Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), view);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            System.err.println("Could not unmap the match history file: " + e);
         }
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.gridwidth = GridBagConstraints.REMAINDER;
-        gbc.fill = GridBagConstraints.HORIZONTAL;
-        gbc.insets = new Insets(10, 0, 10, 0);
-        JButton startButton = createStyledButton("Start Game");
-        JButton optionsButton = createStyledButton("Options");
-        JButton historyButton = createStyledButton("Match History");
-        JButton exitButton = createStyledButton("Exit");
-        startButton.addActionListener(e -> onStart.run());
-        optionsButton.addActionListener(e -> showOptions());
-        historyButton.addActionListener(e -> showHistory());
-        exitButton.addActionListener(e -> onExit.run());
-        add(startButton, gbc);
-        add(optionsButton, gbc);
-        add(historyButton, gbc);
-        add(exitButton, gbc);
+        view = null;
     }
 
-    private JButton createStyledButton(String text) {
-        JButton button = new JButton(text);
-        button.setFont(new Font("Arial", Font.BOLD, 24));
-        button.setForeground(Color.WHITE);
-        button.setBackground(new Color(0, 100, 0));
-        button.setFocusPainted(false);
-        button.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
-        return button;
+    private void quarantine(long from, long to) throws IOException {
+        Path corrupt = Paths.get(path + ".corrupt");
+        try (FileChannel out = FileChannel.open(corrupt, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long copied = 0; copied < to - from; ) {
+                copied += channel.transferTo(from + copied, to - from - copied, out);
+            }
+            out.force(true);
+        }
+        System.err.println("Moved " + (to - from) + " unreadable bytes from the end of the match history file to " + corrupt);
     }
 
-    private void showOptions() {
-        String optionsText = "<html><h2>Controls</h2>" +
-                "<p><b>Player 1:</b></p>" +
-                "<ul>" +
-                "<li><b>Arrow Keys:</b> Move</li>" +
-                "<li><b>Shift:</b> Shoot</li>" +
-                "<li><b>Control:</b> Pass</li>" +
-                "</ul>" +
-                "<h3>Penalty Shootout</h3>" +
-                "<ul>" +
-                "<li><b>Aiming:</b> Arrow Keys (Left/Right/Up)</li>" +
-                "<li><b>Shooting:</b> Shift</li>" +
-                "<li><b>Goalkeeping:</b> Arrow Keys (Left/Right/Up) to choose dive direction</li>" +
-                "</ul>" +
-                "<p><b>Player 2 (AI):</b></p>" +
-                "<ul>" +
-                "<li>Controlled by the computer.</li>" +
-                "</ul></html>";
-        JOptionPane.showMessageDialog(this, optionsText, "Options", JOptionPane.INFORMATION_MESSAGE);
+    private boolean isIntact(int index) throws IOException {
+        record.clear();
+        if (channel.read(record, offsetOf(index)) < RECORD_BYTES) return false;
+        crc.reset();
+        crc.update(record.array(), 4, RECORD_BYTES - 4);
+        return (int) crc.getValue() == record.getInt(0);
     }
 
-    private void showHistory() {
-        JFrame parentFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
-        MatchHistoryDialog dialog = new MatchHistoryDialog(parentFrame, matchHistory);
-        dialog.setVisible(true);
+    private void writeName(int offset, String teamName) {
+        byte[] bytes = teamName.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > NAME_BYTES) {
+            throw new IllegalArgumentException("Team name does not fit in a match record: " + teamName);
+        }
+        for (int i = 0; i < NAME_BYTES; i++) {
+            record.put(offset + i, i < bytes.length ? bytes[i] : 0);
+        }
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        if (backgroundImage != null) {
-            g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+    private String readName(int offset) {
+        int length = 0;
+        while (length < NAME_BYTES && (name[length] = view.get(offset + length)) != 0) {
+            length++;
+        }
+        return new String(name, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private long offsetOf(int index) {
+        return HEADER_BYTES + (long) index * RECORD_BYTES;
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
         }
     }
 }
 
-class DifficultyPanel extends JPanel {
-    private BufferedImage backgroundImage;
+class MatchHistory {
+    private static final String HISTORY_FILE = "match_history.dat";
+    private static final String LEGACY_HISTORY_FILE = "match_history.txt";
+    private static final String STATS_FILE = "match_stats.idx";
+    private static final int PENDING_RESULTS = 64;
+    private static final long WRITER_POLL_MS = 100;
+    private static final long SHUTDOWN_FLUSH_MS = 5000;
+
+    private final MatchLog log = new MatchLog(Paths.get(HISTORY_FILE));
+    private final MatchStats stats = new MatchStats(Paths.get(STATS_FILE));
+    private final ArrayBlockingQueue<MatchResult> pending = new ArrayBlockingQueue<>(PENDING_RESULTS);
+    private final Thread writer = new Thread(this::runWriter, "history-writer");
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+    private final TeamStats[] publishedStats = new TeamStats[Team.values().length];
+    private volatile boolean closed;
+    private boolean writable;
+    private boolean readable;
+    private boolean loaded;
 
-    public DifficultyPanel(Runnable onDifficultySelected, Runnable onBack) {
+    public MatchHistory() {
+        for (Team team : Team.values()) {
+            publishedStats[team.ordinal()] = new TeamStats(team);
+        }
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public void addResult(MatchResult result) {
+        if (closed) return;
+        if (!pending.offer(result)) {
+            System.err.println("Match history writer is falling behind, dropped result: " + result);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            writer.join(SHUTDOWN_FLUSH_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        loadHistory();
+        publish();
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+        List<MatchResult> batch = new ArrayList<>(PENDING_RESULTS);
+        while (!closed || !pending.isEmpty()) {
+            try {
+                MatchResult first = pending.poll(WRITER_POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            pending.drainTo(batch);
+            try {
+                writeBatch(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Error saving match history batch: " + e);
+            }
+            publish();
+            batch.clear();
+            for (Runnable listener : changeListeners) {
+                listener.run();
+            }
+        }
+    }
+
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void writeBatch(List<MatchResult> batch) {
+        if (!writable) return;
+        try {
+            for (MatchResult result : batch) {
+                log.append(result);
+                stats.record(result);
+            }
+            log.sync();
+            stats.save();
+        } catch (IOException e) {
+            System.err.println("Error saving match history: " + e.getMessage());
+        }
+    }
+
+    private void publish() {
+        TeamStats[] snapshot = new TeamStats[publishedStats.length];
+        for (Team team : Team.values()) {
+            snapshot[team.ordinal()] = new TeamStats(stats.get(team));
+        }
+        synchronized (this) {
+            log.publish();
+            System.arraycopy(snapshot, 0, publishedStats, 0, snapshot.length);
+            readable = writable;
+            loaded = true;
+        }
+    }
+
+    private void loadHistory() {
+        try {
+            boolean migrate = !log.exists();
+            log.open();
+            writable = true;
+            if (migrate) {
+                importLegacyHistory();
+            }
+            syncStats();
+        } catch (IOException e) {
+            System.err.println("Error loading match history: " + e.getMessage());
+        }
+    }
+
+    private void syncStats() throws IOException {
+        long total = log.getTotalRecords();
+        long firstRetained = total - log.size();
+        boolean loaded = stats.load();
+        if (loaded && stats.getCoveredRecords() == total) return;
+        if (!loaded || stats.getCoveredRecords() > total || stats.getCoveredRecords() < firstRetained) {
+            if (firstRetained > 0) {
+                System.err.println("Match statistics index is missing or stale; " + firstRetained
+                        + " earlier results are no longer in the match history file and are left out of the rebuilt totals");
+            } else if (total > 0) {
+                System.err.println("Rebuilding match statistics from the match history");
+            }
+            stats.reset(firstRetained);
+        }
+        for (long i = stats.getCoveredRecords(); i < total; i++) {
+            stats.record(log.read((int) (i - firstRetained)));
+        }
+        stats.save();
+    }
+
+    public synchronized TeamStats getTeamStats(Team team) {
+        return new TeamStats(publishedStats[team.ordinal()]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void importLegacyHistory() throws IOException {
+        List<MatchResult> legacy;
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(LEGACY_HISTORY_FILE))) {
+            legacy = (List<MatchResult>) ois.readObject();
+        } catch (FileNotFoundException e) {
+            return;
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Could not import legacy match history: " + e.getMessage());
+            return;
+        }
+        for (MatchResult result : legacy) {
+            log.append(result);
+        }
+        log.sync();
+        log.publish();
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized int size() {
+        return readable ? log.size() : 0;
+    }
+
+    public synchronized long getTotalRecords() {
+        return readable ? log.getTotalRecords() : 0;
+    }
+
+    public synchronized long getFirstRetained() {
+        return readable ? log.getDroppedRecords() : 0;
+    }
+
+    public synchronized MatchResult getRecord(long sequence) {
+        long first = getFirstRetained();
+        if (sequence < first || sequence >= getTotalRecords()) return null;
+        try {
+            return log.read((int) (sequence - first));
+        } catch (IOException e) {
+            System.err.println("Error reading match history: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized MatchResult getNewest(int index) {
+        try {
+            return log.read(log.size() - 1 - index);
+        } catch (IOException e) {
+            System.err.println("Error reading match history: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public synchronized List<MatchResult> getPage(int page, int pageSize) {
+        int from = page * pageSize;
+        int to = Math.min(size(), from + pageSize);
+        List<MatchResult> results = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            results.add(getNewest(i));
+        }
+        return results;
+    }
+
+    public Iterator<MatchResult> newestFirst() {
+        int count = size();
+        return new Iterator<MatchResult>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public MatchResult next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return getNewest(next++);
+            }
+        };
+    }
+}
+
+class MatchHistoryListModel extends AbstractListModel<MatchResult> {
+    private static final long serialVersionUID = 1L;
+    private final MatchHistory matchHistory;
+    private final long newestShown;
+    private final long oldestShown;
+    private final Runnable changeListener = () -> SwingUtilities.invokeLater(this::refresh);
+    private int size;
+
+    public MatchHistoryListModel(MatchHistory matchHistory) {
+        this.matchHistory = matchHistory;
+        this.newestShown = matchHistory.getTotalRecords();
+        this.size = matchHistory.size();
+        this.oldestShown = newestShown - size;
+        matchHistory.addChangeListener(changeListener);
+    }
+
+    public void dispose() {
+        matchHistory.removeChangeListener(changeListener);
+    }
+
+    private void refresh() {
+        long oldestRetained = Math.max(oldestShown, matchHistory.getFirstRetained());
+        int retained = (int) Math.max(0, newestShown - oldestRetained);
+        if (retained < size) {
+            int previous = size;
+            size = retained;
+            fireIntervalRemoved(this, retained, previous - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public MatchResult getElementAt(int index) {
+        if (index < 0 || index >= size) return null;
+        return matchHistory.getRecord(newestShown - 1 - index);
+    }
+}
+
+class TeamStats {
+    private static final int WIN = 0;
+    private static final int DRAW = 1;
+    private static final int LOSS = 2;
+
+    private final Team team;
+    private final int[][] headToHead = new int[Team.values().length][3];
+    private int played;
+    private int wins;
+    private int draws;
+    private int losses;
+    private int goalsFor;
+    private int goalsAgainst;
+    private int shootoutsPlayed;
+    private int shootoutsWon;
+    private int streak;
+    private int bestWinStreak;
+
+    public TeamStats(Team team) {
+        this.team = team;
+    }
+
+    public TeamStats(TeamStats other) {
+        this(other.team);
+        for (int i = 0; i < headToHead.length; i++) {
+            System.arraycopy(other.headToHead[i], 0, headToHead[i], 0, 3);
+        }
+        played = other.played;
+        wins = other.wins;
+        draws = other.draws;
+        losses = other.losses;
+        goalsFor = other.goalsFor;
+        goalsAgainst = other.goalsAgainst;
+        shootoutsPlayed = other.shootoutsPlayed;
+        shootoutsWon = other.shootoutsWon;
+        streak = other.streak;
+        bestWinStreak = other.bestWinStreak;
+    }
+
+    public void record(Team opponent, int scored, int conceded, boolean shootout, int penaltiesScored, int penaltiesConceded) {
+        int outcome;
+        if (scored != conceded) {
+            outcome = scored > conceded ? WIN : LOSS;
+        } else if (shootout) {
+            outcome = penaltiesScored > penaltiesConceded ? WIN : LOSS;
+        } else {
+            outcome = DRAW;
+        }
+        played++;
+        goalsFor += scored;
+        goalsAgainst += conceded;
+        headToHead[opponent.ordinal()][outcome]++;
+        if (shootout) {
+            shootoutsPlayed++;
+            if (outcome == WIN) shootoutsWon++;
+        }
+        switch (outcome) {
+            case WIN:
+                wins++;
+                streak = streak > 0 ? streak + 1 : 1;
+                bestWinStreak = Math.max(bestWinStreak, streak);
+                break;
+            case LOSS:
+                losses++;
+                streak = streak < 0 ? streak - 1 : -1;
+                break;
+            default:
+                draws++;
+                streak = 0;
+                break;
+        }
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(played);
+        out.writeInt(wins);
+        out.writeInt(draws);
+        out.writeInt(losses);
+        out.writeInt(goalsFor);
+        out.writeInt(goalsAgainst);
+        out.writeInt(shootoutsPlayed);
+        out.writeInt(shootoutsWon);
+        out.writeInt(streak);
+        out.writeInt(bestWinStreak);
+        for (int[] record : headToHead) {
+            for (int count : record) {
+                out.writeInt(count);
+            }
+        }
+    }
+
+    public void readFrom(DataInput in) throws IOException {
+        played = in.readInt();
+        wins = in.readInt();
+        draws = in.readInt();
+        losses = in.readInt();
+        goalsFor = in.readInt();
+        goalsAgainst = in.readInt();
+        shootoutsPlayed = in.readInt();
+        shootoutsWon = in.readInt();
+        streak = in.readInt();
+        bestWinStreak = in.readInt();
+        for (int[] record : headToHead) {
+            for (int i = 0; i < record.length; i++) {
+                record[i] = in.readInt();
+            }
+        }
+    }
+
+    public Team getTeam() { return team; }
+    public int getPlayed() { return played; }
+    public int getWins() { return wins; }
+    public int getDraws() { return draws; }
+    public int getLosses() { return losses; }
+    public int getGoalsFor() { return goalsFor; }
+    public int getGoalsAgainst() { return goalsAgainst; }
+    public int getShootoutsPlayed() { return shootoutsPlayed; }
+    public int getShootoutsWon() { return shootoutsWon; }
+    public int getCurrentStreak() { return streak; }
+    public int getBestWinStreak() { return bestWinStreak; }
+    public int getWinsAgainst(Team opponent) { return headToHead[opponent.ordinal()][WIN]; }
+    public int getDrawsAgainst(Team opponent) { return headToHead[opponent.ordinal()][DRAW]; }
+    public int getLossesAgainst(Team opponent) { return headToHead[opponent.ordinal()][LOSS]; }
+
+    public double getShootoutWinRate() {
+        return shootoutsPlayed == 0 ? 0 : (double) shootoutsWon / shootoutsPlayed;
+    }
+}
+
+class MatchStats {
+    private static final int MAGIC = 0x4D535431;
+
+    private final Path path;
+    private final TeamStats[] teams = new TeamStats[Team.values().length];
+    private long coveredRecords;
+
+    public MatchStats(Path path) {
+        this.path = path;
+        reset(0);
+    }
+
+    public boolean load() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readInt() != teams.length) return false;
+            coveredRecords = in.readLong();
+            for (TeamStats stats : teams) {
+                stats.readFrom(in);
+            }
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            System.err.println("Error loading match statistics: " + e.getMessage());
+            reset(0);
+            return false;
+        }
+    }
+
+    public void save() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(teams.length);
+        out.writeLong(coveredRecords);
+        for (TeamStats stats : teams) {
+            stats.writeTo(out);
+        }
+        Path temp = Paths.get(path + ".tmp");
+        Files.write(temp, bytes.toByteArray());
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void reset(long coveredRecords) {
+        for (Team team : Team.values()) {
+            teams[team.ordinal()] = new TeamStats(team);
+        }
+        this.coveredRecords = coveredRecords;
+    }
+
+    public void record(MatchResult result) {
+        coveredRecords++;
+        if (result == null) return;
+        Team team1;
+        Team team2;
+        try {
+            team1 = Team.valueOf(result.getTeam1Name());
+            team2 = Team.valueOf(result.getTeam2Name());
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        teams[team1.ordinal()].record(team2, result.getTeam1Score(), result.getTeam2Score(),
+                result.isPenalty(), result.getPenalty1(), result.getPenalty2());
+        teams[team2.ordinal()].record(team1, result.getTeam2Score(), result.getTeam1Score(),
+                result.isPenalty(), result.getPenalty2(), result.getPenalty1());
+    }
+
+    public long getCoveredRecords() {
+        return coveredRecords;
+    }
+
+    public TeamStats get(Team team) {
+        return teams[team.ordinal()];
+    }
+}
+
+enum Difficulty {
+    EASY(1.0, 0.5, 18, 1.2),
+    MEDIUM(1.0, 0.8, 12, 0.8),
+    HARD(1.2, 1.5, 9, 0.6);
+
+    private final double userSpeed;
+    private final double aiBaseSpeed;
+    private final int aiReactionTicks;
+    private final double aiReadError;
+
+    Difficulty(double userSpeed, double aiBaseSpeed, int aiReactionTicks, double aiReadError) {
+        this.userSpeed = userSpeed;
+        this.aiBaseSpeed = aiBaseSpeed;
+        this.aiReactionTicks = aiReactionTicks;
+        this.aiReadError = aiReadError;
+    }
+
+    public double getUserSpeed() {
+        return this.userSpeed;
+    }
+
+    public double getAiBaseSpeed() {
+        return this.aiBaseSpeed;
+    }
+
+    public int getAiReactionTicks() {
+        return this.aiReactionTicks;
+    }
+
+    public double getAiReadError() {
+        return this.aiReadError;
+    }
+}
+
+enum Team {
+    ARGENTINA("ARG"),
+    BRAZIL("BRA"),
+    PORTUGAL("POR"),
+    GERMANY("GER");
+
+    private final String abbreviation;
+
+    Team(String abbreviation) {
+        this.abbreviation = abbreviation;
+    }
+
+    public String getAbbreviation() {
+        return this.abbreviation;
+    }
+}
+
+class MainMenuPanel extends JPanel {
+    private BufferedImage backgroundImage;
+    private final MatchHistory matchHistory;
+
+    public MainMenuPanel(MatchHistory matchHistory, Runnable onStart, Runnable onExit) {
+        this.matchHistory = matchHistory;
         setPreferredSize(new Dimension(GamePanel.WIDTH, GamePanel.HEIGHT));
         setLayout(new GridBagLayout());
         try {
@@ -580,39 +1719,25 @@ class DifficultyPanel extends JPanel {
             System.err.println("Background image not found: background.jpg");
             setBackground(new Color(0, 50, 0));
         }
-
         GridBagConstraints gbc = new GridBagConstraints();
         gbc.gridwidth = GridBagConstraints.REMAINDER;
         gbc.fill = GridBagConstraints.HORIZONTAL;
         gbc.insets = new Insets(10, 0, 10, 0);
-
-        JButton easyButton = createStyledButton("Easy");
-        JButton mediumButton = createStyledButton("Medium");
-        JButton hardButton = createStyledButton("Hard");
-        JButton backButton = createStyledButton("Back");
-
-        easyButton.addActionListener(e -> {
-            GamePanel.USER_SPEED = 1.0;
-            GamePanel.AI_BASE_SPEED = 0.5;
-            onDifficultySelected.run();
-        });
-        mediumButton.addActionListener(e -> {
-            GamePanel.USER_SPEED = 1.0;
-            GamePanel.AI_BASE_SPEED = 0.8;
-            onDifficultySelected.run();
-        });
-        hardButton.addActionListener(e -> {
-            GamePanel.USER_SPEED = 1.2;
-            GamePanel.AI_BASE_SPEED = 1.5;
-            onDifficultySelected.run();
-        });
-        backButton.addActionListener(e -> onBack.run());
-
-        add(easyButton, gbc);
-        add(mediumButton, gbc);
-        add(hardButton, gbc);
-        gbc.insets = new Insets(40, 0, 10, 0);
-        add(backButton, gbc);
+        JButton startButton = createStyledButton("Start Game");
+        JButton optionsButton = createStyledButton("Options");
+        JButton historyButton = createStyledButton("Match History");
+        JButton statsButton = createStyledButton("Statistics");
+        JButton exitButton = createStyledButton("Exit");
+        startButton.addActionListener(e -> onStart.run());
+        optionsButton.addActionListener(e -> showOptions());
+        historyButton.addActionListener(e -> showHistory());
+        statsButton.addActionListener(e -> showStatistics());
+        exitButton.addActionListener(e -> onExit.run());
+        add(startButton, gbc);
+        add(optionsButton, gbc);
+        add(historyButton, gbc);
+        add(statsButton, gbc);
+        add(exitButton, gbc);
     }
 
     private JButton createStyledButton(String text) {
@@ -625,18 +1750,150 @@ class DifficultyPanel extends JPanel {
         return button;
     }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        if (backgroundImage != null) {
-            g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
-        }
+    private void showOptions() {
+        String optionsText = "<html><h2>Controls</h2>" +
+                "<p><b>Player 1:</b></p>" +
+                "<ul>" +
+                "<li><b>Arrow Keys:</b> Move</li>" +
+                "<li><b>Shift:</b> Shoot</li>" +
+                "<li><b>Control:</b> Pass</li>" +
+                "</ul>" +
+                "<h3>Penalty Shootout</h3>" +
+                "<ul>" +
+                "<li><b>Aiming:</b> Arrow Keys (Left/Right/Up)</li>" +
+                "<li><b>Shooting:</b> Shift</li>" +
+                "<li><b>Goalkeeping:</b> Arrow Keys (Left/Right/Up) to choose dive direction</li>" +
+                "</ul>" +
+                "<p><b>Player 2 (AI):</b></p>" +
+                "<ul>" +
+                "<li>Controlled by the computer.</li>" +
+                "</ul></html>";
+        JOptionPane.showMessageDialog(this, optionsText, "Options", JOptionPane.INFORMATION_MESSAGE);
     }
-}
-
 
-@FunctionalInterface
-interface GameStarter {
+    private void showStatistics() {
+        Team[] teams = Team.values();
+        StringBuilder text = new StringBuilder("<html><h2>Team Statistics</h2>");
+        if (!matchHistory.isLoaded()) {
+            text.append("<p>Match history is still loading.</p>");
+        }
+        text.append("<table>");
+        text.append("<tr><th>Team</th><th>P</th><th>W</th><th>D</th><th>L</th><th>GF</th><th>GA</th>")
+                .append("<th>Shootouts</th><th>Streak</th><th>Best</th></tr>");
+        TeamStats[] stats = new TeamStats[teams.length];
+        for (Team team : teams) {
+            TeamStats s = matchHistory.getTeamStats(team);
+            stats[team.ordinal()] = s;
+            String streak = s.getCurrentStreak() > 0 ? "W" + s.getCurrentStreak()
+                    : s.getCurrentStreak() < 0 ? "L" + -s.getCurrentStreak() : "-";
+            text.append("<tr><td><b>").append(team.getAbbreviation()).append("</b></td>")
+                    .append("<td>").append(s.getPlayed()).append("</td>")
+                    .append("<td>").append(s.getWins()).append("</td>")
+                    .append("<td>").append(s.getDraws()).append("</td>")
+                    .append("<td>").append(s.getLosses()).append("</td>")
+                    .append("<td>").append(s.getGoalsFor()).append("</td>")
+                    .append("<td>").append(s.getGoalsAgainst()).append("</td>")
+                    .append("<td>").append(s.getShootoutsWon()).append("/").append(s.getShootoutsPlayed())
+                    .append(String.format(" (%.0f%%)", s.getShootoutWinRate() * 100)).append("</td>")
+                    .append("<td>").append(streak).append("</td>")
+                    .append("<td>").append(s.getBestWinStreak()).append("</td></tr>");
+        }
+        text.append("</table><h3>Head to Head (W-D-L)</h3><table><tr><th></th>");
+        for (Team opponent : teams) {
+            text.append("<th>").append(opponent.getAbbreviation()).append("</th>");
+        }
+        text.append("</tr>");
+        for (Team team : teams) {
+            text.append("<tr><td><b>").append(team.getAbbreviation()).append("</b></td>");
+            TeamStats s = stats[team.ordinal()];
+            for (Team opponent : teams) {
+                text.append("<td>");
+                if (opponent == team) {
+                    text.append("-");
+                } else {
+                    text.append(s.getWinsAgainst(opponent)).append("-").append(s.getDrawsAgainst(opponent))
+                            .append("-").append(s.getLossesAgainst(opponent));
+                }
+                text.append("</td>");
+            }
+            text.append("</tr>");
+        }
+        text.append("</table></html>");
+        JOptionPane.showMessageDialog(this, text.toString(), "Statistics", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    private void showHistory() {
+        JFrame parentFrame = (JFrame) SwingUtilities.getWindowAncestor(this);
+        MatchHistoryDialog dialog = new MatchHistoryDialog(parentFrame, matchHistory);
+        dialog.setVisible(true);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (backgroundImage != null) {
+            g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+        }
+    }
+}
+
+class DifficultyPanel extends JPanel {
+    private BufferedImage backgroundImage;
+
+    public DifficultyPanel(Consumer<Difficulty> onDifficultySelected, Runnable onBack) {
+        setPreferredSize(new Dimension(GamePanel.WIDTH, GamePanel.HEIGHT));
+        setLayout(new GridBagLayout());
+        try {
+            backgroundImage = ImageIO.read(new File("background.jpg"));
+        } catch (IOException e) {
+            System.err.println("Background image not found: background.jpg");
+            setBackground(new Color(0, 50, 0));
+        }
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.fill = GridBagConstraints.HORIZONTAL;
+        gbc.insets = new Insets(10, 0, 10, 0);
+
+        JButton easyButton = createStyledButton("Easy");
+        JButton mediumButton = createStyledButton("Medium");
+        JButton hardButton = createStyledButton("Hard");
+        JButton backButton = createStyledButton("Back");
+
+        easyButton.addActionListener(e -> onDifficultySelected.accept(Difficulty.EASY));
+        mediumButton.addActionListener(e -> onDifficultySelected.accept(Difficulty.MEDIUM));
+        hardButton.addActionListener(e -> onDifficultySelected.accept(Difficulty.HARD));
+        backButton.addActionListener(e -> onBack.run());
+
+        add(easyButton, gbc);
+        add(mediumButton, gbc);
+        add(hardButton, gbc);
+        gbc.insets = new Insets(40, 0, 10, 0);
+        add(backButton, gbc);
+    }
+
+    private JButton createStyledButton(String text) {
+        JButton button = new JButton(text);
+        button.setFont(new Font("Arial", Font.BOLD, 24));
+        button.setForeground(Color.WHITE);
+        button.setBackground(new Color(0, 100, 0));
+        button.setFocusPainted(false);
+        button.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+        return button;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (backgroundImage != null) {
+            g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+        }
+    }
+}
+
+
+@FunctionalInterface
+interface GameStarter {
     void startGame(Team userTeam, Team aiTeam);
 }
 
@@ -687,81 +1944,1401 @@ class TeamSelectionPanel extends JPanel {
                 Color.WHITE
         ));
 
-        JPanel flagsPanel = new JPanel(new GridLayout(1, 4, 15, 15));
-        flagsPanel.setOpaque(false);
-        flagsPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
-        panel.add(flagsPanel, BorderLayout.CENTER);
+        JPanel flagsPanel = new JPanel(new GridLayout(1, 4, 15, 15));
+        flagsPanel.setOpaque(false);
+        flagsPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+        panel.add(flagsPanel, BorderLayout.CENTER);
+
+        for (Team team : Team.values()) {
+            try {
+                String path = team.name().toLowerCase() + "_flag.png";
+                BufferedImage flag = SpriteCache.scaled(path, 150, 100);
+                if (flag == null) {
+                    throw new IOException("Missing flag image");
+                }
+                ImageIcon icon = new ImageIcon(flag);
+                JButton button = new JButton(icon);
+                button.setOpaque(false);
+                button.setContentAreaFilled(false);
+                button.setBorder(new LineBorder(Color.GRAY, 2));
+                flagsPanel.add(button);
+                buttonMap.put(team, button);
+            } catch (Exception e) {
+                System.err.println("Could not load flag: " + team.name().toLowerCase() + "_flag.png");
+                JButton button = new JButton(team.name());
+                flagsPanel.add(button);
+                buttonMap.put(team, button);
+            }
+        }
+        return panel;
+    }
+
+    private void addUserTeamButtonListeners() {
+        for (Map.Entry<Team, JButton> entry : userButtons.entrySet()) {
+            entry.getValue().addActionListener(e -> {
+                userTeam = entry.getKey();
+                userButtons.forEach((team, button) -> button.setBorder(new LineBorder(Color.GRAY, 2)));
+                entry.getValue().setBorder(new LineBorder(Color.CYAN, 4));
+                aiButtons.forEach((team, button) -> button.setEnabled(true));
+                aiButtons.get(userTeam).setEnabled(false);
+                if (aiTeam == userTeam) {
+                    aiTeam = null;
+                    aiButtons.forEach((team, button) -> button.setBorder(new LineBorder(Color.GRAY, 2)));
+                }
+                checkIfReadyToStart();
+            });
+        }
+    }
+
+    private void addAiTeamButtonListeners() {
+        for (Map.Entry<Team, JButton> entry : aiButtons.entrySet()) {
+            entry.getValue().addActionListener(e -> {
+                aiTeam = entry.getKey();
+                aiButtons.forEach((team, button) -> button.setBorder(new LineBorder(Color.GRAY, 2)));
+                entry.getValue().setBorder(new LineBorder(Color.ORANGE, 4));
+                checkIfReadyToStart();
+            });
+        }
+    }
+
+    private void checkIfReadyToStart() {
+        startMatchButton.setEnabled(userTeam != null && aiTeam != null);
+    }
+}
+
+class SpriteSheet {
+    private final BufferedImage[] rotations;
+    private final BufferedImage upright;
+    private final BufferedImage mirrored;
+    private final int frameSize;
+
+    SpriteSheet(BufferedImage[] rotations, BufferedImage upright, BufferedImage mirrored, int frameSize) {
+        this.rotations = rotations;
+        this.upright = upright;
+        this.mirrored = mirrored;
+        this.frameSize = frameSize;
+    }
+
+    public BufferedImage frameFor(double angle) {
+        double turns = angle / (2 * Math.PI);
+        int index = (int) Math.round((turns - Math.floor(turns)) * rotations.length) % rotations.length;
+        return rotations[index];
+    }
+
+    public BufferedImage getUpright() { return upright; }
+    public BufferedImage getMirrored() { return mirrored; }
+    public int getFrameSize() { return frameSize; }
+}
+
+final class SpriteCache {
+    public static final int PLAYER_ROTATIONS = 64;
+    public static final int BALL_ROTATIONS = 16;
+
+    private static final Map<String, SoftReference<BufferedImage>> decoded = new ConcurrentHashMap<>();
+    private static final Map<String, Object> derived = new ConcurrentHashMap<>();
+    private static final Object MISSING = new Object();
+
+    private SpriteCache() {
+    }
+
+    public static BufferedImage load(String path) {
+        SoftReference<BufferedImage> reference = decoded.get(path);
+        BufferedImage image = reference == null ? null : reference.get();
+        if (image == null) {
+            image = read(path);
+            if (image != null) {
+                decoded.put(path, new SoftReference<>(image));
+            }
+        }
+        return image;
+    }
+
+    public static BufferedImage scaled(String path, int width, int height) {
+        return (BufferedImage) derive(path + "@" + width + "x" + height, path, source -> scale(source, width, height));
+    }
+
+    public static SpriteSheet playerSheet(String path, int size) {
+        return sheet(path, size, PLAYER_ROTATIONS, true);
+    }
+
+    public static SpriteSheet ballSheet(String path, int size) {
+        return sheet(path, size, BALL_ROTATIONS, false);
+    }
+
+    private static SpriteSheet sheet(String path, int size, int rotationCount, boolean keepUpright) {
+        return (SpriteSheet) derive(path + "#" + size + "/" + rotationCount, path,
+                source -> buildSheet(scale(source, size, size), size, rotationCount, keepUpright));
+    }
+
+    private static Object derive(String key, String path, Function<BufferedImage, Object> builder) {
+        Object cached = derived.get(key);
+        if (cached == null) {
+            BufferedImage source = read(path);
+            Object built = source == null ? MISSING : builder.apply(source);
+            cached = derived.putIfAbsent(key, built);
+            if (cached == null) {
+                cached = built;
+            }
+        }
+        return cached == MISSING ? null : cached;
+    }
+
+    private static BufferedImage read(String path) {
+        try {
+            return ImageIO.read(new File(path));
+        } catch (IOException e) {
+            System.err.println("Could not load sprite: " + path);
+            return null;
+        }
+    }
+
+    private static SpriteSheet buildSheet(BufferedImage sprite, int size, int rotationCount, boolean keepUpright) {
+        int frameSize = (int) Math.ceil(size * Math.sqrt(2)) + 2;
+        BufferedImage[] rotations = new BufferedImage[rotationCount];
+        for (int i = 0; i < rotationCount; i++) {
+            double angle = 2 * Math.PI * i / rotationCount;
+            double wrapped = Math.atan2(Math.sin(angle), Math.cos(angle));
+            boolean flip = keepUpright && Math.abs(wrapped) > Math.PI / 2;
+            rotations[i] = renderFrame(sprite, size, frameSize, angle, flip ? -1 : 1, 1);
+        }
+        BufferedImage upright = renderFrame(sprite, size, frameSize, 0, 1, 1);
+        BufferedImage mirrored = renderFrame(sprite, size, frameSize, 0, 1, -1);
+        return new SpriteSheet(rotations, upright, mirrored, frameSize);
+    }
+
+    private static BufferedImage renderFrame(BufferedImage sprite, int size, int frameSize, double angle, double scaleY, double scaleX) {
+        BufferedImage frame = createCompatibleImage(frameSize, frameSize);
+        Graphics2D g2d = frame.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.translate(frameSize / 2.0, frameSize / 2.0);
+        g2d.rotate(angle);
+        g2d.scale(scaleX, scaleY);
+        g2d.drawImage(sprite, -size / 2, -size / 2, null);
+        g2d.dispose();
+        return frame;
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage step = createCompatibleImage(currentWidth, currentHeight);
+            Graphics2D g2d = step.createGraphics();
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            g2d.dispose();
+            current = step;
+        } while (currentWidth != width || currentHeight != height);
+        return current;
+    }
+
+    private static BufferedImage createCompatibleImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDefaultConfiguration().createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+}
+
+class TripleBuffer<T> {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
+
+    private final Object[] slots = new Object[3];
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int writeIndex = 0;
+    private int readIndex = 2;
+
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = factory.get();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) slots[writeIndex];
+    }
+
+    public void publish() {
+        writeIndex = middle.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((middle.get() & FRESH) != 0) {
+            readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+        }
+        return (T) slots[readIndex];
+    }
+}
+
+class FrameSnapshot {
+    private boolean hasMatch;
+    private int matchSerial;
+    private double alpha;
+    private MatchSimulation.GameState gameState;
+    private MatchSimulation.PenaltyState penaltyState;
+    private MatchSimulation.ShotDirection shotDirection;
+    private MatchSimulation.ShotDirection userDiveDirection;
+    private boolean userTurnToShoot;
+    private boolean showingGoalMessage;
+    private String penaltyMessage = "";
+    private int scoreTeam1, scoreTeam2, penaltyScoreTeam1, penaltyScoreTeam2, remainingSeconds;
+
+    private int entityCount;
+    private double[] x = new double[0], y = new double[0], prevX = new double[0], prevY = new double[0];
+    private double[] dirX = new double[0], dirY = new double[0];
+    private int[] size = new int[0];
+    private int[] team = new int[0];
+    private Player.PlayerRole[] role = new Player.PlayerRole[0];
+    private boolean[] human = new boolean[0];
+    private SpriteSheet[] sprite = new SpriteSheet[0];
+    private Color[] color = new Color[0];
+    private double ballRotation;
+    private boolean hasPitchControl;
+    private int pitchColumns;
+    private float[] pitchControl = new float[0];
+
+    public void capture(MatchSimulation match, int matchSerial, double alpha, boolean includePitchControl) {
+        this.hasMatch = true;
+        this.matchSerial = matchSerial;
+        this.alpha = alpha;
+        gameState = match.getGameState();
+        penaltyState = match.getPenaltyState();
+        shotDirection = match.getShotDirection();
+        userDiveDirection = match.getUserDiveDirection();
+        userTurnToShoot = match.isUserTurnToShoot();
+        showingGoalMessage = match.isShowingGoalMessage();
+        penaltyMessage = match.getPenaltyMessage();
+        scoreTeam1 = match.getScoreTeam1();
+        scoreTeam2 = match.getScoreTeam2();
+        penaltyScoreTeam1 = match.getPenaltyScoreTeam1();
+        penaltyScoreTeam2 = match.getPenaltyScoreTeam2();
+        remainingSeconds = match.getRemainingSeconds();
+
+        entityCount = 0;
+        if (gameState == MatchSimulation.GameState.PENALTY_SHOOTOUT) {
+            addPlayer(match.getPenaltyKicker());
+            addPlayer(match.getPenaltyGoalkeeper());
+        } else {
+            List<Player> players = match.getAllPlayers();
+            for (int i = 0; i < players.size(); i++) {
+                addPlayer(players.get(i));
+            }
+        }
+        Ball ball = match.getBall();
+        int index = addEntity(ball);
+        sprite[index] = ball.getSprite();
+        color[index] = Color.WHITE;
+        team[index] = -1;
+        ballRotation = ball.getRotationAngle();
+
+        hasPitchControl = includePitchControl && gameState != MatchSimulation.GameState.PENALTY_SHOOTOUT;
+        if (hasPitchControl) {
+            PitchControl pitch = match.getPitchControl();
+            float[] control = pitch.getControl();
+            if (pitchControl.length != control.length) {
+                pitchControl = new float[control.length];
+            }
+            System.arraycopy(control, 0, pitchControl, 0, control.length);
+            pitchColumns = pitch.getColumns();
+        }
+    }
+
+    private void addPlayer(Player player) {
+        if (player == null) return;
+        int index = addEntity(player);
+        dirX[index] = player.getDirX();
+        dirY[index] = player.getDirY();
+        team[index] = player.getTeamIndex();
+        role[index] = player.getRole();
+        human[index] = player.isHumanControlled();
+        sprite[index] = player.getSprite();
+        color[index] = player.getFallbackColor();
+    }
+
+    private int addEntity(GameObject entity) {
+        if (entityCount == x.length) {
+            grow(Math.max(16, entityCount * 2));
+        }
+        int index = entityCount++;
+        x[index] = entity.getX();
+        y[index] = entity.getY();
+        prevX[index] = entity.getPrevX();
+        prevY[index] = entity.getPrevY();
+        size[index] = entity.size;
+        human[index] = false;
+        return index;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        dirX = Arrays.copyOf(dirX, capacity);
+        dirY = Arrays.copyOf(dirY, capacity);
+        size = Arrays.copyOf(size, capacity);
+        team = Arrays.copyOf(team, capacity);
+        role = Arrays.copyOf(role, capacity);
+        human = Arrays.copyOf(human, capacity);
+        sprite = Arrays.copyOf(sprite, capacity);
+        color = Arrays.copyOf(color, capacity);
+    }
+
+    public boolean hasMatch() { return hasMatch; }
+    public int getMatchSerial() { return matchSerial; }
+    public MatchSimulation.GameState getGameState() { return gameState; }
+    public MatchSimulation.PenaltyState getPenaltyState() { return penaltyState; }
+    public MatchSimulation.ShotDirection getShotDirection() { return shotDirection; }
+    public MatchSimulation.ShotDirection getUserDiveDirection() { return userDiveDirection; }
+    public boolean isUserTurnToShoot() { return userTurnToShoot; }
+    public boolean isShowingGoalMessage() { return showingGoalMessage; }
+    public String getPenaltyMessage() { return penaltyMessage; }
+    public int getScoreTeam1() { return scoreTeam1; }
+    public int getScoreTeam2() { return scoreTeam2; }
+    public int getPenaltyScoreTeam1() { return penaltyScoreTeam1; }
+    public int getPenaltyScoreTeam2() { return penaltyScoreTeam2; }
+    public int getRemainingSeconds() { return remainingSeconds; }
+
+    public int getEntityCount() { return entityCount; }
+    public int getBallIndex() { return entityCount - 1; }
+    public double getRenderX(int index) { return prevX[index] + (x[index] - prevX[index]) * alpha; }
+    public double getRenderY(int index) { return prevY[index] + (y[index] - prevY[index]) * alpha; }
+    public double getDirX(int index) { return dirX[index]; }
+    public double getDirY(int index) { return dirY[index]; }
+    public int getSize(int index) { return size[index]; }
+    public int getTeam(int index) { return team[index]; }
+    public Player.PlayerRole getRole(int index) { return role[index]; }
+    public boolean isHuman(int index) { return human[index]; }
+    public SpriteSheet getSprite(int index) { return sprite[index]; }
+    public Color getColor(int index) { return color[index]; }
+    public double getBallRotation() { return ballRotation; }
+    public boolean hasPitchControl() { return hasPitchControl; }
+    public int getPitchColumns() { return pitchColumns; }
+    public float[] getPitchControl() { return pitchControl; }
+}
+
+class DirtyRegions {
+    private final List<Rectangle> regions = new ArrayList<>();
+    private int count;
+
+    public void clear() {
+        count = 0;
+    }
+
+    public void add(int x, int y, int width, int height) {
+        Rectangle region;
+        if (count == regions.size()) {
+            region = new Rectangle();
+            regions.add(region);
+        } else {
+            region = regions.get(count);
+        }
+        region.setBounds(x, y, width, height);
+        count++;
+        mergeOverlapping();
+    }
+
+    private void mergeOverlapping() {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < count && !merged; i++) {
+                Rectangle a = regions.get(i);
+                for (int j = i + 1; j < count; j++) {
+                    Rectangle b = regions.get(j);
+                    if (a.intersects(b)) {
+                        a.add(b);
+                        Rectangle last = regions.get(count - 1);
+                        regions.set(j, last);
+                        regions.set(count - 1, b);
+                        count--;
+                        merged = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Rectangle get(int index) {
+        return regions.get(index);
+    }
+
+    public long area() {
+        long area = 0;
+        for (int i = 0; i < count; i++) {
+            Rectangle region = regions.get(i);
+            area += (long) region.width * region.height;
+        }
+        return area;
+    }
+}
+
+class TextImage {
+    private static final int PADDING = 2;
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, true, true);
+
+    private final BufferedImage image;
+    private final int advance;
+    private final int ascent;
+
+    private TextImage(BufferedImage image, int advance, int ascent) {
+        this.image = image;
+        this.advance = advance;
+        this.ascent = ascent;
+    }
+
+    public static TextImage render(String text, Font font, Color color) {
+        GlyphVector glyphs = font.createGlyphVector(RENDER_CONTEXT, text);
+        LineMetrics metrics = font.getLineMetrics(text, RENDER_CONTEXT);
+        Rectangle2D bounds = glyphs.getLogicalBounds();
+        int ascent = (int) Math.ceil(metrics.getAscent());
+        int width = (int) Math.ceil(Math.max(bounds.getWidth(), glyphs.getVisualBounds().getMaxX())) + 2 * PADDING;
+        int height = ascent + (int) Math.ceil(metrics.getDescent()) + 2 * PADDING;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        g2d.setColor(color);
+        g2d.drawGlyphVector(glyphs, PADDING, PADDING + ascent);
+        g2d.dispose();
+        return new TextImage(image, (int) Math.round(bounds.getWidth()), ascent);
+    }
+
+    public void drawCentered(Graphics2D g2d, int left, int width, int baseline) {
+        draw(g2d, left + (width - advance) / 2, baseline);
+    }
+
+    public void draw(Graphics2D g2d, int x, int baseline) {
+        g2d.drawImage(image, x - PADDING, baseline - ascent - PADDING, null);
+    }
+
+    public int getAscent() { return ascent; }
+}
+
+class HudLayer {
+    private static final Font SCORE_FONT = new Font("Consolas", Font.BOLD, 20);
+    private static final Font CLOCK_FONT = new Font("Consolas", Font.PLAIN, 22);
+    private static final Font GOAL_FONT = new Font("Arial", Font.BOLD, 40);
+    private static final Font INSTRUCTION_FONT = new Font("Arial", Font.BOLD, 24);
+    private static final Font RESULT_FONT = new Font("Arial", Font.BOLD, 60);
+
+    private final int boxX, boxY, boxWidth, boxHeight;
+    private final int screenWidth, screenHeight;
+    private final TextImage goalText = TextImage.render("GOAL!!!", GOAL_FONT, Color.YELLOW);
+    private final TextImage aimText = TextImage.render("AIM: Use ↑ ← → keys. Shoot: SHIFT", INSTRUCTION_FONT, Color.WHITE);
+    private final TextImage diveText = TextImage.render("CHOOSE DIVE: Use ↑ ← → keys.", INSTRUCTION_FONT, Color.WHITE);
+    private final Map<String, TextImage> resultTexts = new HashMap<>();
+
+    private TextImage scoreText;
+    private String scoreUserAbbr, scoreAiAbbr;
+    private int scoreTeam1 = -1, scoreTeam2 = -1;
+    private TextImage clockText;
+    private int clockSeconds = Integer.MIN_VALUE;
+    private TextImage penaltyScoreText;
+    private int penaltyScoreTeam1 = -1, penaltyScoreTeam2 = -1;
+
+    public HudLayer(int boxX, int boxY, int boxWidth, int boxHeight, int screenWidth, int screenHeight) {
+        this.boxX = boxX;
+        this.boxY = boxY;
+        this.boxWidth = boxWidth;
+        this.boxHeight = boxHeight;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+    }
+
+    public void draw(Graphics2D g2d, FrameSnapshot frame, String userAbbr, String aiAbbr) {
+        boolean shootout = frame.getGameState() == MatchSimulation.GameState.PENALTY_SHOOTOUT;
+        MatchSimulation.PenaltyState penaltyState = frame.getPenaltyState();
+
+        TextImage score = scoreText(userAbbr, aiAbbr, frame.getScoreTeam1(), frame.getScoreTeam2());
+        score.drawCentered(g2d, boxX, boxWidth, boxY + score.getAscent() + 5);
+        if (shootout) {
+            penaltyScoreText(frame.getPenaltyScoreTeam1(), frame.getPenaltyScoreTeam2()).drawCentered(g2d, boxX, boxWidth, boxY + boxHeight + 10);
+        } else {
+            clockText(frame.getRemainingSeconds()).drawCentered(g2d, boxX, boxWidth, boxY + boxHeight - 5);
+        }
+
+        if (frame.isShowingGoalMessage()) {
+            goalText.drawCentered(g2d, 0, screenWidth, screenHeight / 2);
+        }
+
+        String penaltyMessage = frame.getPenaltyMessage();
+        if (shootout && penaltyState == MatchSimulation.PenaltyState.AIMING) {
+            MatchSimulation.ShotDirection indicatorDirection;
+            if (frame.isUserTurnToShoot()) {
+                aimText.drawCentered(g2d, 0, screenWidth, screenHeight - 50);
+                indicatorDirection = frame.getShotDirection();
+            } else {
+                diveText.drawCentered(g2d, 0, screenWidth, screenHeight - 50);
+                indicatorDirection = frame.getUserDiveDirection();
+            }
+
+            g2d.setColor(Color.YELLOW);
+            int indicatorX = MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH, indicatorY = 0;
+            int goalCenterY = MatchSimulation.PLAYABLE_Y + MatchSimulation.PLAYABLE_HEIGHT / 2;
+            int goalPostHeight = 50;
+            switch (indicatorDirection) {
+                case LEFT: indicatorY = goalCenterY - goalPostHeight; break;
+                case CENTER: indicatorY = goalCenterY; break;
+                case RIGHT: indicatorY = goalCenterY + goalPostHeight; break;
+            }
+            g2d.fillOval(indicatorX - 10, indicatorY - 10, 20, 20);
+        } else if (penaltyState == MatchSimulation.PenaltyState.RESULT && !penaltyMessage.isEmpty()) {
+            TextImage result = resultTexts.get(penaltyMessage);
+            if (result == null) {
+                result = TextImage.render(penaltyMessage, RESULT_FONT, penaltyMessage.equals("GOAL!") ? Color.GREEN : Color.RED);
+                resultTexts.put(penaltyMessage, result);
+            }
+            result.drawCentered(g2d, 0, screenWidth, screenHeight / 2);
+        }
+    }
+
+    private TextImage scoreText(String userAbbr, String aiAbbr, int team1, int team2) {
+        if (scoreText == null || team1 != scoreTeam1 || team2 != scoreTeam2 || !userAbbr.equals(scoreUserAbbr) || !aiAbbr.equals(scoreAiAbbr)) {
+            scoreText = TextImage.render(String.format("%s %d - %d %s", userAbbr, team1, team2, aiAbbr), SCORE_FONT, Color.WHITE);
+            scoreUserAbbr = userAbbr;
+            scoreAiAbbr = aiAbbr;
+            scoreTeam1 = team1;
+            scoreTeam2 = team2;
+        }
+        return scoreText;
+    }
+
+    private TextImage clockText(int remainingSeconds) {
+        if (clockText == null || remainingSeconds != clockSeconds) {
+            int clamped = Math.max(0, remainingSeconds);
+            clockText = TextImage.render(String.format("%02d:%02d", clamped / 60, clamped % 60), CLOCK_FONT, Color.WHITE);
+            clockSeconds = remainingSeconds;
+        }
+        return clockText;
+    }
+
+    private TextImage penaltyScoreText(int team1, int team2) {
+        if (penaltyScoreText == null || team1 != penaltyScoreTeam1 || team2 != penaltyScoreTeam2) {
+            penaltyScoreText = TextImage.render(String.format("(%d - %d)", team1, team2), CLOCK_FONT, Color.WHITE);
+            penaltyScoreTeam1 = team1;
+            penaltyScoreTeam2 = team2;
+        }
+        return penaltyScoreText;
+    }
+}
+
+class GamePanel extends JPanel implements Runnable, MatchListener {
+    public static final int WIDTH = 1280;
+    public static final int HEIGHT = 720;
+    private static final long NANOS_PER_TICK = 1_000_000_000L / MatchSimulation.TICKS_PER_SECOND;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long SPIN_THRESHOLD_NANOS = 1_000_000L;
+    private static final int SCORE_BOX_X = 10;
+    private static final int SCORE_BOX_Y = 10;
+    private static final int SCORE_BOX_WIDTH = 150;
+    private static final int SCORE_BOX_HEIGHT = 50;
+    private static final int HUD_REGION_WIDTH = SCORE_BOX_X + SCORE_BOX_WIDTH + 5;
+    private static final int HUD_REGION_HEIGHT = SCORE_BOX_Y + SCORE_BOX_HEIGHT + 30;
+    private static final int ENTITY_MARGIN = 8;
+    private static final Color SCORE_BOX_COLOR = new Color(0, 0, 128, 220);
+    private static final BasicStroke SCORE_BOX_STROKE = new BasicStroke(2);
+    private static final Color PAUSE_OVERLAY_COLOR = new Color(0, 0, 0, 128);
+    private static final int PITCH_CONTROL_LEVELS = 8;
+    private static final Color[] TEAM1_CONTROL_COLORS = controlColors(Color.CYAN);
+    private static final Color[] TEAM2_CONTROL_COLORS = controlColors(Color.ORANGE);
+    private static final boolean ACTIVE_RENDERING = !"passive".equalsIgnoreCase(System.getProperty("soccer.rendering", "active"));
+
+    private Thread gameThread;
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+    private volatile boolean showPitchControl = false;
+    private JPanel pauseMenuPanel;
+    private JButton pauseButton;
+    private final JFrame parentFrame;
+    private final SoundPlayer soundPlayer;
+    private final Runnable onGameEnd;
+    private final MatchHistory matchHistory;
+
+    private Team userTeam;
+    private Team aiTeam;
+    private Difficulty difficulty = Difficulty.MEDIUM;
+    private BufferedImage fieldImage;
+    private SpriteSheet ballSprite;
+    private SpriteSheet userGkPenaltySprite;
+    private volatile MatchSimulation match;
+    private volatile HumanController userController;
+    private final Canvas canvas;
+    private final HudLayer hud = new HudLayer(SCORE_BOX_X, SCORE_BOX_Y, SCORE_BOX_WIDTH, SCORE_BOX_HEIGHT, WIDTH, HEIGHT);
+    private volatile BufferedImage staticLayer;
+    private final DirtyRegions dirtyRegions = new DirtyRegions();
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    private final Runnable frameRenderer = this::renderFrame;
+    private final TripleBuffer<FrameSnapshot> snapshots = new TripleBuffer<>(FrameSnapshot::new);
+    private final Object renderLock = new Object();
+    private FrameSnapshot pinnedFrame;
+    private volatile int matchSerial;
+    private int lastRenderedSerial = -1;
+    private boolean lastFrameNeededFullRepaint = true;
+    private int[] lastEntityX = new int[0];
+    private int[] lastEntityY = new int[0];
+    private int[] lastEntitySize = new int[0];
+
+
+    public GamePanel(JFrame parentFrame, SoundPlayer soundPlayer, MatchHistory matchHistory, Runnable onGameEnd) {
+        this.parentFrame = parentFrame;
+        this.soundPlayer = soundPlayer;
+        this.matchHistory = matchHistory;
+        this.onGameEnd = onGameEnd;
+        setPreferredSize(new Dimension(WIDTH, HEIGHT));
+        setFocusable(true);
+        KeyInputHandler keyInputHandler = new KeyInputHandler();
+        addKeyListener(keyInputHandler);
+        setLayout(null);
+
+        pauseButton = new JButton("Pause");
+        pauseButton.setBounds(WIDTH - 130, 10, 100, 40);
+        pauseButton.setFont(new Font("Arial", Font.BOLD, 16));
+        pauseButton.setFocusable(false);
+        pauseButton.addActionListener(e -> pauseGame());
+        add(pauseButton);
+
+        createPauseMenu(onGameEnd);
+
+        if (ACTIVE_RENDERING) {
+            canvas = new Canvas();
+            canvas.setBounds(0, 0, WIDTH, HEIGHT);
+            canvas.setIgnoreRepaint(true);
+            canvas.setFocusable(true);
+            canvas.addKeyListener(keyInputHandler);
+            pauseButton.setVisible(false);
+            add(canvas);
+        } else {
+            canvas = null;
+        }
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (canvas != null) {
+                    canvas.setSize(getSize());
+                }
+                updateStaticLayer();
+            }
+        });
+
+        fieldImage = SpriteCache.load("field.png");
+        ballSprite = SpriteCache.ballSheet("ball.png", MatchSimulation.BALL_SIZE);
+        if (fieldImage == null) {
+            setBackground(new Color(0, 128, 0));
+        }
+        preloadSprites();
+    }
+
+    private void preloadSprites() {
+        Thread preloader = new Thread(() -> {
+            int size = MatchSimulation.PLAYER_SIZE;
+            for (String path : new String[] { "gk.png", "ai_gk.png", "gk_penalty.png" }) {
+                SpriteCache.playerSheet(path, size);
+            }
+            for (Team team : Team.values()) {
+                SpriteCache.playerSheet(userPlayerSpritePath(team), size);
+                SpriteCache.playerSheet(aiPlayerSpritePath(team), size);
+            }
+        }, "sprite-preloader");
+        preloader.setDaemon(true);
+        preloader.start();
+    }
+
+    private static String userPlayerSpritePath(Team team) {
+        return team.name().toLowerCase() + "_player.png";
+    }
+
+    private static String aiPlayerSpritePath(Team team) {
+        return "ai_" + team.name().toLowerCase() + ".png";
+    }
+
+    private void createPauseMenu(Runnable onGameEnd) {
+        pauseMenuPanel = new JPanel(new GridBagLayout());
+        pauseMenuPanel.setBounds(WIDTH / 2 - 200, HEIGHT / 2 - 150, 400, 300);
+        pauseMenuPanel.setBackground(new Color(0, 0, 0, 180));
+        pauseMenuPanel.setBorder(BorderFactory.createLineBorder(Color.WHITE, 2));
+        pauseMenuPanel.setVisible(false);
+
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+        gbc.insets = new Insets(10, 0, 10, 0);
+
+        JButton resumeButton = new JButton("Resume");
+        resumeButton.setFont(new Font("Arial", Font.BOLD, 24));
+        resumeButton.addActionListener(e -> resumeGame());
+        pauseMenuPanel.add(resumeButton, gbc);
+
+        JButton backButton = new JButton("Back to Menu");
+        backButton.setFont(new Font("Arial", Font.BOLD, 24));
+        backButton.addActionListener(e -> {
+            running = false;
+            onGameEnd.run();
+        });
+        pauseMenuPanel.add(backButton, gbc);
+        add(pauseMenuPanel);
+    }
+
+    public void pauseGame() {
+        if (match != null && match.getGameState() != MatchSimulation.GameState.PENALTY_SHOOTOUT) {
+             paused = true;
+             if (canvas != null) {
+                 canvas.setVisible(false);
+                 requestFocusInWindow();
+             }
+             repaint();
+        }
+    }
+
+    public void resumeGame() {
+        paused = false;
+        lastFrameNeededFullRepaint = true;
+        focusGameSurface();
+    }
+
+    private void focusGameSurface() {
+        if (canvas != null) {
+            canvas.setVisible(true);
+            canvas.requestFocusInWindow();
+        } else {
+            requestFocusInWindow();
+        }
+    }
+
+
+    public void setDifficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
+    }
+
+    public void startGame(Team userTeam, Team aiTeam) {
+        this.userTeam = userTeam;
+        this.aiTeam = aiTeam;
+        if (running) return;
+
+        paused = false;
+        initializeGame(userTeam, aiTeam);
+        updateStaticLayer();
+
+        running = true;
+        gameThread = new Thread(this);
+        gameThread.start();
+        focusGameSurface();
+    }
+
+    private void initializeGame(Team userTeam, Team aiTeam) {
+        String userPlayerPath = userPlayerSpritePath(userTeam);
+        String userGkPath = "gk.png";
+        String aiPlayerPath = aiPlayerSpritePath(aiTeam);
+        String aiGkPath = "ai_gk.png";
+        int size = MatchSimulation.PLAYER_SIZE;
+        userGkPenaltySprite = SpriteCache.playerSheet("gk_penalty.png", size);
+        SpriteSheet userPlayerSprite = SpriteCache.playerSheet(userPlayerPath, size);
+        SpriteSheet userGkSprite = SpriteCache.playerSheet(userGkPath, size);
+        SpriteSheet aiPlayerSprite = SpriteCache.playerSheet(aiPlayerPath, size);
+        SpriteSheet aiGkSprite = SpriteCache.playerSheet(aiGkPath, size);
+
+        MatchSimulation newMatch = new MatchSimulation(System.nanoTime(), true, difficulty);
+        newMatch.setListener(this);
+        newMatch.getBall().setSprite(ballSprite);
+        for (Player p : newMatch.getTeam("Team 1")) {
+            p.setSprite(p.getRole() == Player.PlayerRole.GOALKEEPER ? userGkSprite : userPlayerSprite);
+        }
+        for (Player p : newMatch.getTeam("Team 2")) {
+            p.setSprite(p.getRole() == Player.PlayerRole.GOALKEEPER ? aiGkSprite : aiPlayerSprite);
+        }
+        userController = newMatch.getHumanControllers().get(0);
+        match = newMatch;
+        matchSerial++;
+    }
+
+    @Override
+    public void run() {
+        long frameNanos = 1_000_000_000L / detectRefreshRate();
+        long previousTime = System.nanoTime();
+        long nextFrameTime = previousTime + frameNanos;
+        long accumulator = 0;
+        AtomicBoolean rendering = new AtomicBoolean(true);
+        Thread renderer = canvas != null ? startRenderer(rendering) : null;
+        while (running) {
+            long now = System.nanoTime();
+            accumulator += now - previousTime;
+            previousTime = now;
+
+            int steps = 0;
+            while (running && accumulator >= NANOS_PER_TICK && steps < MAX_CATCH_UP_TICKS) {
+                update();
+                accumulator -= NANOS_PER_TICK;
+                steps++;
+            }
+            if (accumulator >= NANOS_PER_TICK) {
+                accumulator %= NANOS_PER_TICK;
+            }
+
+            publishSnapshot((double) accumulator / NANOS_PER_TICK);
+            if (!paused) {
+                if (renderer != null) {
+                    LockSupport.unpark(renderer);
+                } else if (framePending.compareAndSet(false, true)) {
+                    SwingUtilities.invokeLater(frameRenderer);
+                }
+            }
+
+            waitUntil(nextFrameTime);
+            nextFrameTime += frameNanos;
+            long lag = System.nanoTime() - nextFrameTime;
+            if (lag > frameNanos) {
+                nextFrameTime += (lag / frameNanos) * frameNanos;
+            }
+        }
+        if (renderer != null) {
+            rendering.set(false);
+            LockSupport.unpark(renderer);
+        }
+    }
+
+    private Thread startRenderer(AtomicBoolean rendering) {
+        Thread renderer = new Thread(() -> {
+            while (rendering.get()) {
+                LockSupport.park(this);
+                if (rendering.get() && !paused) {
+                    renderActive();
+                }
+            }
+        }, "frame-renderer");
+        renderer.setDaemon(true);
+        renderer.start();
+        return renderer;
+    }
+
+    private static int detectRefreshRate() {
+        try {
+            if (!GraphicsEnvironment.isHeadless()) {
+                int refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                        .getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+                if (refreshRate != DisplayMode.REFRESH_RATE_UNKNOWN && refreshRate >= 30) {
+                    return refreshRate;
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Could not read display refresh rate: " + e.getMessage());
+        }
+        return MatchSimulation.TICKS_PER_SECOND;
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    private void update() {
+        if (paused) return;
+        match.tick();
+        soundPlayer.setBallPosition(match.getBall().getCenterX());
+    }
+
+    @Override
+    public void onGoal(String scoringTeam, int score) {
+        soundPlayer.playGoalSound(score);
+    }
+
+    @Override
+    public void onPass(String teamName, int passCount) {
+        soundPlayer.playPassSound(passCount);
+    }
+
+    @Override
+    public void onShot() {
+        soundPlayer.playShootSound();
+    }
+
+    @Override
+    public void onPenaltySaved() {
+        soundPlayer.playSaveSound();
+    }
+
+    @Override
+    public void onPenaltyMissed() {
+        soundPlayer.playMissSound();
+    }
+
+    @Override
+    public void onFullTime() {
+        running = false;
+        showGameOverDialog();
+    }
+
+    @Override
+    public void onShootoutOver() {
+        showPenaltyEndDialog();
+    }
+
+    private void showGameOverDialog() {
+        SwingUtilities.invokeLater(() -> {
+            int scoreTeam1 = match.getScoreTeam1();
+            int scoreTeam2 = match.getScoreTeam2();
+            if (scoreTeam1 == scoreTeam2) {
+                javax.swing.Timer timer = new javax.swing.Timer(2000, e -> {
+                    CustomMessageDialog dialog = new CustomMessageDialog(parentFrame, "Shootout", "Penalty Shootout Starts Now");
+                    dialog.setVisible(true);
+
+                    startPenaltyShootout();
+                });
+                timer.setRepeats(false);
+                timer.start();
+                return;
+            }
+
+            MatchResult result = new MatchResult(userTeam.name(), scoreTeam1, aiTeam.name(), scoreTeam2);
+            matchHistory.addResult(result);
+
+            String line1;
+            java.util.function.Function<Team, String> formatName = t -> {
+                if (t == null) return "Unknown";
+                String name = t.name().toLowerCase();
+                return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            };
+
+            if (scoreTeam1 > scoreTeam2) {
+                line1 = formatName.apply(userTeam) + " Wins! 🏆";
+            } else {
+                line1 = formatName.apply(aiTeam) + " Wins!";
+            }
+
+            String userAbbr = (userTeam != null) ? userTeam.getAbbreviation() : "USER";
+            String aiAbbr = (aiTeam != null) ? aiTeam.getAbbreviation() : "AI";
+            String line2 = "Final Score: " + userAbbr + " " + scoreTeam1 + " - " + scoreTeam2 + " " + aiAbbr;
+
+            CustomGameOverDialog dialog = new CustomGameOverDialog(parentFrame, "Game Over", line1, line2, onGameEnd);
+            dialog.setVisible(true);
+        });
+    }
+
+    private void startPenaltyShootout() {
+        match.startPenaltyShootout();
+        running = true;
+
+        match.getTeam("Team 1").stream()
+            .filter(p -> p.getRole() == Player.PlayerRole.GOALKEEPER)
+            .findFirst()
+            .ifPresent(gk -> gk.setSprite(userGkPenaltySprite));
+
+        if (gameThread == null || !gameThread.isAlive()) {
+             gameThread = new Thread(this);
+             gameThread.start();
+        }
+        focusGameSurface();
+    }
+
+     private void showPenaltyEndDialog() {
+        running = false;
+        SwingUtilities.invokeLater(() -> {
+            int penaltyScoreTeam1 = match.getPenaltyScoreTeam1();
+            int penaltyScoreTeam2 = match.getPenaltyScoreTeam2();
+            MatchResult result = new MatchResult(userTeam.name(), match.getScoreTeam1(), aiTeam.name(), match.getScoreTeam2(), true, penaltyScoreTeam1, penaltyScoreTeam2);
+            matchHistory.addResult(result);
+
+            String line1;
+            java.util.function.Function<Team, String> formatName = t -> {
+                if (t == null) return "Unknown";
+                String name = t.name().toLowerCase();
+                return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            };
+
+            if (penaltyScoreTeam1 > penaltyScoreTeam2) {
+                line1 = formatName.apply(userTeam) + " Wins the Shootout! 🏆";
+            } else {
+                line1 = formatName.apply(aiTeam) + " Wins the Shootout!";
+            }
+            String line2 = "Penalty Score: " + penaltyScoreTeam1 + " - " + penaltyScoreTeam2;
+
+            CustomGameOverDialog dialog = new CustomGameOverDialog(parentFrame, "Shootout Over", line1, line2, onGameEnd);
+            dialog.setVisible(true);
+        });
+    }
+
+    private void publishSnapshot(double alpha) {
+        MatchSimulation match = this.match;
+        if (match == null) return;
+        snapshots.getWriteBuffer().capture(match, matchSerial, alpha, showPitchControl);
+        snapshots.publish();
+    }
+
+    private void renderActive() {
+        if (!canvas.isDisplayable() || canvas.getWidth() <= 0 || canvas.getHeight() <= 0) {
+            return;
+        }
+        BufferStrategy strategy = canvas.getBufferStrategy();
+        if (strategy == null) {
+            canvas.createBufferStrategy(3);
+            return;
+        }
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    synchronized (renderLock) {
+                        renderScene(g2d, snapshots.acquire());
+                    }
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void renderFrame() {
+        framePending.set(false);
+        if (paused) {
+            return;
+        }
+        synchronized (renderLock) {
+            FrameSnapshot frame = snapshots.acquire();
+            if (!frame.hasMatch()) {
+                return;
+            }
+            boolean shootout = frame.getGameState() == MatchSimulation.GameState.PENALTY_SHOOTOUT;
+            boolean fullRepaint = shootout || frame.isShowingGoalMessage() || frame.hasPitchControl()
+                    || frame.getMatchSerial() != lastRenderedSerial;
+            if (fullRepaint || lastFrameNeededFullRepaint) {
+                lastFrameNeededFullRepaint = fullRepaint;
+                lastRenderedSerial = frame.getMatchSerial();
+                forgetEntityBounds();
+                repaint();
+            } else {
+                dirtyRegions.clear();
+                dirtyRegions.add(0, 0, HUD_REGION_WIDTH, HUD_REGION_HEIGHT);
+                ensureEntityBounds(frame.getEntityCount());
+                for (int i = 0; i < frame.getEntityCount(); i++) {
+                    markEntity(i, frame);
+                }
+                if (dirtyRegions.area() * 2 > (long) getWidth() * getHeight()) {
+                    repaint();
+                } else {
+                    pinnedFrame = frame;
+                    try {
+                        for (int i = 0; i < dirtyRegions.size(); i++) {
+                            paintImmediately(dirtyRegions.get(i));
+                        }
+                    } finally {
+                        pinnedFrame = null;
+                    }
+                }
+            }
+        }
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private void ensureEntityBounds(int count) {
+        if (lastEntityX.length != count) {
+            lastEntityX = new int[count];
+            lastEntityY = new int[count];
+            lastEntitySize = new int[count];
+        }
+    }
+
+    private void forgetEntityBounds() {
+        Arrays.fill(lastEntitySize, 0);
+    }
+
+    private void markEntity(int index, FrameSnapshot frame) {
+        int x = (int) frame.getRenderX(index) - ENTITY_MARGIN;
+        int y = (int) frame.getRenderY(index) - ENTITY_MARGIN;
+        int size = frame.getSize(index) + 2 * ENTITY_MARGIN;
+        if (lastEntitySize[index] > 0) {
+            if (lastEntityX[index] == x && lastEntityY[index] == y) {
+                return;
+            }
+            dirtyRegions.add(lastEntityX[index], lastEntityY[index], lastEntitySize[index], lastEntitySize[index] + ENTITY_MARGIN);
+        }
+        dirtyRegions.add(x, y, size, size + ENTITY_MARGIN);
+        lastEntityX[index] = x;
+        lastEntityY[index] = y;
+        lastEntitySize[index] = size;
+    }
+
+    private void updateStaticLayer() {
+        int width = getWidth();
+        int height = getHeight();
+        BufferedImage current = staticLayer;
+        if (width <= 0 || height <= 0 || current != null && current.getWidth() == width && current.getHeight() == height) {
+            return;
+        }
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        BufferedImage layer = configuration != null
+                ? configuration.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = layer.createGraphics();
+        g2d.setColor(getBackground());
+        g2d.fillRect(0, 0, width, height);
+        if (fieldImage != null) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(fieldImage, 0, 0, width, height, null);
+        }
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        drawGoals(g2d);
+        drawScoreBox(g2d, SCORE_BOX_HEIGHT);
+        g2d.dispose();
+        synchronized (renderLock) {
+            staticLayer = layer;
+            lastFrameNeededFullRepaint = true;
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2d = (Graphics2D) g;
+        if (getWidth() <= 0 || getHeight() <= 0) {
+            return;
+        }
+        synchronized (renderLock) {
+            renderScene(g2d, pinnedFrame != null ? pinnedFrame : snapshots.acquire());
+        }
+
+        if (paused) {
+            g2d.setColor(PAUSE_OVERLAY_COLOR);
+            g2d.fillRect(0, 0, getWidth(), getHeight());
+        }
+        pauseMenuPanel.setVisible(paused);
+    }
+
+    private void renderScene(Graphics2D g2d, FrameSnapshot frame) {
+        BufferedImage layer = staticLayer;
+        if (layer != null) {
+            g2d.drawImage(layer, 0, 0, null);
+        }
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+
+        if (frame.hasMatch()) {
+            if (frame.hasPitchControl()) {
+                drawPitchControl(g2d, frame);
+            }
+            int ballIndex = frame.getBallIndex();
+            for (int i = 0; i < ballIndex; i++) {
+                drawPlayer(g2d, frame, i);
+            }
+            drawBall(g2d, frame, ballIndex);
+            drawUI(g2d, frame);
+        }
+    }
+
+    private void drawPitchControl(Graphics2D g2d, FrameSnapshot frame) {
+        float[] control = frame.getPitchControl();
+        int columns = frame.getPitchColumns();
+        for (int cell = 0; cell < control.length; cell++) {
+            float value = control[cell];
+            int level = Math.min(PITCH_CONTROL_LEVELS - 1, (int) (Math.abs(value) * PITCH_CONTROL_LEVELS));
+            if (level == 0) continue;
+            g2d.setColor(value > 0 ? TEAM1_CONTROL_COLORS[level] : TEAM2_CONTROL_COLORS[level]);
+            g2d.fillRect(MatchSimulation.PLAYABLE_X + (cell % columns) * PitchControl.CELL_SIZE,
+                    MatchSimulation.PLAYABLE_Y + (cell / columns) * PitchControl.CELL_SIZE,
+                    PitchControl.CELL_SIZE, PitchControl.CELL_SIZE);
+        }
+    }
 
-        for (Team team : Team.values()) {
-            try {
-                String path = team.name().toLowerCase() + "_flag.png";
-                ImageIcon icon = new ImageIcon(new ImageIcon(path).getImage().getScaledInstance(150, 100, Image.SCALE_SMOOTH));
-                JButton button = new JButton(icon);
-                button.setOpaque(false);
-                button.setContentAreaFilled(false);
-                button.setBorder(new LineBorder(Color.GRAY, 2));
-                flagsPanel.add(button);
-                buttonMap.put(team, button);
-            } catch (Exception e) {
-                System.err.println("Could not load flag: " + team.name().toLowerCase() + "_flag.png");
-                JButton button = new JButton(team.name());
-                flagsPanel.add(button);
-                buttonMap.put(team, button);
+    private static Color[] controlColors(Color base) {
+        Color[] colors = new Color[PITCH_CONTROL_LEVELS];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = new Color(base.getRed(), base.getGreen(), base.getBlue(), i * 110 / PITCH_CONTROL_LEVELS);
+        }
+        return colors;
+    }
+
+    private void drawPlayer(Graphics2D g2d, FrameSnapshot frame, int index) {
+        double drawX = frame.getRenderX(index);
+        double drawY = frame.getRenderY(index);
+        int size = frame.getSize(index);
+        boolean shootout = frame.getGameState() == MatchSimulation.GameState.PENALTY_SHOOTOUT;
+        if (frame.isHuman(index) && !shootout) {
+            g2d.setColor(Color.YELLOW);
+            g2d.fillOval((int)(drawX + size / 2.0) - 5, (int)drawY + size + 2, 10, 10);
+        }
+
+        SpriteSheet sprite = frame.getSprite(index);
+        if (sprite != null) {
+            BufferedImage image;
+            if (frame.getRole(index) == Player.PlayerRole.GOALKEEPER) {
+                image = frame.getTeam(index) == 1 ? sprite.getMirrored() : sprite.getUpright();
+            } else if (!shootout) {
+                image = sprite.frameFor(Math.atan2(frame.getDirY(index), frame.getDirX(index)));
+            } else {
+                image = sprite.getUpright();
             }
+            int offset = sprite.getFrameSize() / 2;
+            g2d.drawImage(image, (int) Math.round(drawX + size / 2.0) - offset, (int) Math.round(drawY + size / 2.0) - offset, null);
+        } else {
+            g2d.setColor(frame.getColor(index));
+            g2d.fill(new Ellipse2D.Double(drawX, drawY, size, size));
+            g2d.setColor(Color.BLACK);
+            g2d.draw(new Ellipse2D.Double(drawX, drawY, size, size));
         }
-        return panel;
     }
 
-    private void addUserTeamButtonListeners() {
-        for (Map.Entry<Team, JButton> entry : userButtons.entrySet()) {
-            entry.getValue().addActionListener(e -> {
-                userTeam = entry.getKey();
-                userButtons.forEach((team, button) -> button.setBorder(new LineBorder(Color.GRAY, 2)));
-                entry.getValue().setBorder(new LineBorder(Color.CYAN, 4));
-                aiButtons.forEach((team, button) -> button.setEnabled(true));
-                aiButtons.get(userTeam).setEnabled(false);
-                if (aiTeam == userTeam) {
-                    aiTeam = null;
-                    aiButtons.forEach((team, button) -> button.setBorder(new LineBorder(Color.GRAY, 2)));
-                }
-                checkIfReadyToStart();
-            });
+    private void drawBall(Graphics2D g2d, FrameSnapshot frame, int index) {
+        double drawX = frame.getRenderX(index);
+        double drawY = frame.getRenderY(index);
+        int size = frame.getSize(index);
+        SpriteSheet sprite = frame.getSprite(index);
+        if (sprite != null) {
+            int offset = sprite.getFrameSize() / 2;
+            g2d.drawImage(sprite.frameFor(frame.getBallRotation()), (int) Math.round(drawX + size / 2.0) - offset, (int) Math.round(drawY + size / 2.0) - offset, null);
+        } else {
+            g2d.setColor(Color.WHITE);
+            g2d.fill(new Ellipse2D.Double(drawX, drawY, size, size));
         }
     }
 
-    private void addAiTeamButtonListeners() {
-        for (Map.Entry<Team, JButton> entry : aiButtons.entrySet()) {
-            entry.getValue().addActionListener(e -> {
-                aiTeam = entry.getKey();
-                aiButtons.forEach((team, button) -> button.setBorder(new LineBorder(Color.GRAY, 2)));
-                entry.getValue().setBorder(new LineBorder(Color.ORANGE, 4));
-                checkIfReadyToStart();
-            });
+    private void drawGoals(Graphics2D g2d) {
+        int goalHeight = 100;
+        int playableX = MatchSimulation.PLAYABLE_X;
+        int playableY = MatchSimulation.PLAYABLE_Y;
+        int playableWidth = MatchSimulation.PLAYABLE_WIDTH;
+        int playableHeight = MatchSimulation.PLAYABLE_HEIGHT;
+        g2d.setColor(Color.WHITE);
+        g2d.setStroke(new BasicStroke(3));
+        g2d.drawLine(playableX, playableY + (playableHeight - goalHeight) / 2-10, playableX, playableY + (playableHeight + goalHeight) / 2-10);
+        g2d.drawLine(playableX + playableWidth, playableY + (playableHeight - goalHeight) / 2-10, playableX + playableWidth, playableY + (playableHeight + goalHeight) / 2-10);
+    }
+
+    private void drawScoreBox(Graphics2D g2d, int boxHeight) {
+        int cornerRadius = 10;
+        g2d.setColor(SCORE_BOX_COLOR);
+        g2d.fillRoundRect(SCORE_BOX_X, SCORE_BOX_Y, SCORE_BOX_WIDTH, boxHeight, cornerRadius, cornerRadius);
+        g2d.setColor(Color.WHITE);
+        g2d.setStroke(SCORE_BOX_STROKE);
+        g2d.drawRoundRect(SCORE_BOX_X, SCORE_BOX_Y, SCORE_BOX_WIDTH, boxHeight, cornerRadius, cornerRadius);
+    }
+
+    private void drawUI(Graphics2D g2d, FrameSnapshot frame) {
+        MatchSimulation.GameState gameState = frame.getGameState();
+        if (pauseButton != null && canvas == null) {
+            pauseButton.setVisible(gameState != MatchSimulation.GameState.PENALTY_SHOOTOUT && !paused);
+        }
+        if (gameState == MatchSimulation.GameState.PENALTY_SHOOTOUT) {
+            drawScoreBox(g2d, SCORE_BOX_HEIGHT + 25);
         }
+        String userAbbr = (userTeam != null) ? userTeam.getAbbreviation() : "USER";
+        String aiAbbr = (aiTeam != null) ? aiTeam.getAbbreviation() : "AI";
+        hud.draw(g2d, frame, userAbbr, aiAbbr);
     }
 
-    private void checkIfReadyToStart() {
-        startMatchButton.setEnabled(userTeam != null && aiTeam != null);
+    private class KeyInputHandler extends KeyAdapter {
+        @Override
+        public void keyPressed(KeyEvent e) {
+            int key = e.getKeyCode();
+            MatchSimulation match = GamePanel.this.match;
+            if (match == null) return;
+            if (key == KeyEvent.VK_ESCAPE || key == KeyEvent.VK_P) {
+                if (paused) resumeGame(); else pauseGame();
+                return;
+            }
+            if (key == KeyEvent.VK_F3) {
+                showPitchControl = !showPitchControl;
+                return;
+            }
+            if (match.getGameState() == MatchSimulation.GameState.PENALTY_SHOOTOUT && match.getPenaltyState() == MatchSimulation.PenaltyState.AIMING) {
+                if (match.isUserTurnToShoot()) {
+                    if (key == KeyEvent.VK_LEFT) match.aimPenalty(MatchSimulation.ShotDirection.LEFT);
+                    if (key == KeyEvent.VK_RIGHT) match.aimPenalty(MatchSimulation.ShotDirection.RIGHT);
+                    if (key == KeyEvent.VK_UP) match.aimPenalty(MatchSimulation.ShotDirection.CENTER);
+                    if (key == KeyEvent.VK_SHIFT) match.takePenaltyShot();
+                } else {
+                    if (key == KeyEvent.VK_LEFT) match.chooseDive(MatchSimulation.ShotDirection.LEFT);
+                    if (key == KeyEvent.VK_RIGHT) match.chooseDive(MatchSimulation.ShotDirection.RIGHT);
+                    if (key == KeyEvent.VK_UP) match.chooseDive(MatchSimulation.ShotDirection.CENTER);
+                }
+                return;
+            }
+
+            if (paused) return;
+            HumanController controller = userController;
+            if (controller != null) {
+                Player humanPlayer1 = controller.getPlayer();
+                double userSpeed = match.getDifficulty().getUserSpeed();
+                if (key == KeyEvent.VK_UP) humanPlayer1.setVelY(-userSpeed);
+                if (key == KeyEvent.VK_DOWN) humanPlayer1.setVelY(userSpeed);
+                if (key == KeyEvent.VK_LEFT) humanPlayer1.setVelX(-userSpeed);
+                if (key == KeyEvent.VK_RIGHT) humanPlayer1.setVelX(userSpeed);
+                if (key == KeyEvent.VK_SHIFT) controller.requestShot();
+                if (key == KeyEvent.VK_CONTROL) controller.requestPass();
+            }
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            int key = e.getKeyCode();
+            MatchSimulation match = GamePanel.this.match;
+            if (match == null) return;
+            if (match.getGameState() == MatchSimulation.GameState.PENALTY_SHOOTOUT || paused) return;
+            HumanController controller = userController;
+            if (controller != null) {
+                Player humanPlayer1 = controller.getPlayer();
+                if (key == KeyEvent.VK_UP || key == KeyEvent.VK_DOWN) humanPlayer1.setVelY(0);
+                if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_RIGHT) humanPlayer1.setVelX(0);
+            }
+        }
     }
 }
 
-class GamePanel extends JPanel implements Runnable {
-    public static final int WIDTH = 1280;
-    public static final int HEIGHT = 720;
-    private static final int PLAYER_SIZE = 25;
-    private static final int BALL_SIZE = 12;
-    private static final int MATCH_DURATION_SECONDS = 300;
+interface MatchListener {
+    default void onGoal(String scoringTeam, int score) {}
+    default void onPass(String teamName, int passCount) {}
+    default void onShot() {}
+    default void onPenaltySaved() {}
+    default void onPenaltyMissed() {}
+    default void onFullTime() {}
+    default void onShootoutOver() {}
+}
+
+class MatchSimulation {
+    public static final int PITCH_WIDTH = 1280;
+    public static final int PITCH_HEIGHT = 720;
     public static final int PLAYABLE_X = 170;
     public static final int PLAYABLE_Y = 100;
-    public static final int PLAYABLE_WIDTH = WIDTH - 345;
-    public static final int PLAYABLE_HEIGHT = HEIGHT - 155;
-
-    public static double USER_SPEED = 1.0;
-    public static double AI_BASE_SPEED = 0.8;
+    public static final int PLAYABLE_WIDTH = PITCH_WIDTH - 345;
+    public static final int PLAYABLE_HEIGHT = PITCH_HEIGHT - 155;
+    public static final int PLAYER_SIZE = 25;
+    public static final int BALL_SIZE = 12;
+    public static final int TICKS_PER_SECOND = 60;
+    public static final int DEFAULT_PLAYERS_PER_TEAM = 6;
+    private static final int MATCH_DURATION_SECONDS = 300;
+    private static final long GOAL_MESSAGE_MILLIS = 3000;
 
     public enum GameState { KICK_OFF, RUNNING, GAME_OVER, PENALTY_SHOOTOUT }
-    private enum PenaltyState { AIMING, KICKING, RESULT }
-    private enum ShotDirection { LEFT, CENTER, RIGHT }
+    public enum PenaltyState { AIMING, KICKING, RESULT }
+    public enum ShotDirection { LEFT, CENTER, RIGHT }
+
+    private static final MatchListener NO_LISTENER = new MatchListener() {};
+
+    private final Random random;
+    private final boolean humanControlled;
+    private final Difficulty difficulty;
+    private MatchListener listener = NO_LISTENER;
+    private long tickCount = 0;
+
     private GameState gameState;
     private PenaltyState penaltyState;
     private ShotDirection shotDirection;
@@ -769,22 +3346,6 @@ class GamePanel extends JPanel implements Runnable {
     private String kickOffTakerTeamName;
     private long lastTickTime;
 
-    private Thread gameThread;
-    private boolean running = false;
-    private volatile boolean paused = false;
-    private JPanel pauseMenuPanel;
-    private JButton pauseButton;
-    private final JFrame parentFrame;
-    private final SoundPlayer soundPlayer;
-    private final Runnable onGameEnd;
-    private final MatchHistory matchHistory;
-    private final Random random = new Random();
-
-    private Team userTeam;
-    private Team aiTeam;
-    private BufferedImage fieldImage;
-    private BufferedImage ballImage;
-    private BufferedImage userGkPenaltySprite;
     private Ball ball;
     private List<Player> team1;
     private List<Player> team2;
@@ -796,178 +3357,95 @@ class GamePanel extends JPanel implements Runnable {
     private int penaltyKicksTeam1 = 0;
     private int penaltyKicksTeam2 = 0;
     private boolean isUserTurnToShoot = true;
+    private boolean shootoutDecided = false;
     private String penaltyMessage = "";
     private long penaltyMessageStartTime = 0;
     private int passCountTeam1 = 0;
     private int passCountTeam2 = 0;
     private String lastPassingTeam = "";
     private int remainingSeconds;
-    private long goalMessageStartTime = 0;
+    private long goalMessageStartTime = -GOAL_MESSAGE_MILLIS;
     private Player penaltyKicker;
     private Player penaltyGoalkeeper;
-
-
-    public GamePanel(JFrame parentFrame, SoundPlayer soundPlayer, MatchHistory matchHistory, Runnable onGameEnd) {
-        this.parentFrame = parentFrame;
-        this.soundPlayer = soundPlayer;
-        this.matchHistory = matchHistory;
-        this.onGameEnd = onGameEnd;
-        setPreferredSize(new Dimension(WIDTH, HEIGHT));
-        setFocusable(true);
-        addKeyListener(new KeyInputHandler());
-        setLayout(null);
-
-        pauseButton = new JButton("Pause");
-        pauseButton.setBounds(WIDTH - 130, 10, 100, 40);
-        pauseButton.setFont(new Font("Arial", Font.BOLD, 16));
-        pauseButton.setFocusable(false);
-        pauseButton.addActionListener(e -> pauseGame());
-        add(pauseButton);
-
-        createPauseMenu(onGameEnd);
-
-        try {
-            fieldImage = ImageIO.read(new File("field.png"));
-            ballImage = ImageIO.read(new File("ball.png"));
-        } catch (IOException e) {
-            System.err.println("Could not load image: " + e.getMessage());
-            setBackground(new Color(0, 128, 0));
-        }
-    }
-
-    private void createPauseMenu(Runnable onGameEnd) {
-        pauseMenuPanel = new JPanel(new GridBagLayout());
-        pauseMenuPanel.setBounds(WIDTH / 2 - 200, HEIGHT / 2 - 150, 400, 300);
-        pauseMenuPanel.setBackground(new Color(0, 0, 0, 180));
-        pauseMenuPanel.setBorder(BorderFactory.createLineBorder(Color.WHITE, 2));
-        pauseMenuPanel.setVisible(false);
-
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.gridwidth = GridBagConstraints.REMAINDER;
-        gbc.insets = new Insets(10, 0, 10, 0);
-
-        JButton resumeButton = new JButton("Resume");
-        resumeButton.setFont(new Font("Arial", Font.BOLD, 24));
-        resumeButton.addActionListener(e -> resumeGame());
-        pauseMenuPanel.add(resumeButton, gbc);
-
-        JButton backButton = new JButton("Back to Menu");
-        backButton.setFont(new Font("Arial", Font.BOLD, 24));
-        backButton.addActionListener(e -> {
-            running = false;
-            onGameEnd.run();
-        });
-        pauseMenuPanel.add(backButton, gbc);
-        add(pauseMenuPanel);
+    private final List<Player> penaltyPlayers = new ArrayList<>(Collections.nCopies(2, null));
+    private final EntityStore entities = new EntityStore();
+    private final WorldQuery worldQuery = new WorldQuery();
+    private final PassEvaluator passEvaluator = new PassEvaluator(entities);
+    private final PitchControl pitchControl;
+    private final AIController aiController;
+    private final List<HumanController> humanControllers = new ArrayList<>();
+    private final SpatialGrid collisionGrid = new SpatialGrid(PLAYABLE_X, PLAYABLE_Y, PLAYABLE_WIDTH, PLAYABLE_HEIGHT, PLAYER_SIZE * 2);
+    private final SpatialGrid.PairVisitor playerCollisionResolver = this::resolvePlayerPair;
+
+    public MatchSimulation(long seed, boolean humanControlled, Difficulty difficulty) {
+        this(seed, humanControlled, difficulty, DEFAULT_PLAYERS_PER_TEAM);
     }
 
-    public void pauseGame() {
-        if (gameState != GameState.PENALTY_SHOOTOUT) {
-             paused = true;
-             repaint();
+    public MatchSimulation(long seed, boolean humanControlled, Difficulty difficulty, int playersPerTeam) {
+        if (playersPerTeam < 2) {
+            throw new IllegalArgumentException("A team needs at least a striker and a goalkeeper");
         }
-    }
-
-    public void resumeGame() {
-        paused = false;
-        requestFocusInWindow();
-    }
-
-
-    public void startGame(Team userTeam, Team aiTeam) {
-        this.userTeam = userTeam;
-        this.aiTeam = aiTeam;
-        if (running) return;
-       
-        paused = false;
-        initializeGame(userTeam, aiTeam);
-        scoreTeam1 = 0;
-        scoreTeam2 = 0;
-        penaltyScoreTeam1 = 0;
-        penaltyScoreTeam2 = 0;
-        penaltyKicksTeam1 = 0;
-        penaltyKicksTeam2 = 0;
-        passCountTeam1 = 0;
-        passCountTeam2 = 0;
-        lastPassingTeam = "";
+        this.random = new Random(seed);
+        this.humanControlled = humanControlled;
+        this.difficulty = difficulty;
+        this.pitchControl = new PitchControl(Math.max(difficulty.getUserSpeed(), difficulty.getAiBaseSpeed()));
+        this.aiController = new AIController(random.nextLong());
+        initializeTeams(playersPerTeam);
         this.remainingSeconds = MATCH_DURATION_SECONDS;
-        
-        this.penaltyMessage = "";
-        this.penaltyState = null;
-
-        this.kickOffTakerTeamName = "Team 1"; 
+        this.kickOffTakerTeamName = humanControlled || random.nextBoolean() ? "Team 1" : "Team 2";
         resetPositions();
-
-        running = true;
-        gameThread = new Thread(this);
-        gameThread.start();
-        requestFocusInWindow();
     }
 
-    private BufferedImage loadSprite(String path) {
-        try {
-            return ImageIO.read(new File(path));
-        } catch (IOException e) {
-            System.err.println("Could not load sprite: " + path);
-            return null;
-        }
-    }
-
-    private void initializeGame(Team userTeam, Team aiTeam) {
-        String userPlayerPath = userTeam.name().toLowerCase() + "_player.png";
-        String userGkPath = "gk.png";
-        String aiPlayerPath = "ai_" + aiTeam.name().toLowerCase() + ".png";
-        String aiGkPath = "ai_gk.png";
-        userGkPenaltySprite = loadSprite("gk_penalty.png");
-        BufferedImage userPlayerSprite = loadSprite(userPlayerPath);
-        BufferedImage userGkSprite = loadSprite(userGkPath);
-        BufferedImage aiPlayerSprite = loadSprite(aiPlayerPath);
-        BufferedImage aiGkSprite = loadSprite(aiGkPath);
-        ball = new Ball(0, 0, BALL_SIZE, ballImage);
+    private void initializeTeams(int playersPerTeam) {
         team1 = new ArrayList<>();
         team2 = new ArrayList<>();
         allPlayers = new ArrayList<>();
-        team1.add(new Player(0, 0, PLAYER_SIZE, userPlayerSprite, Color.CYAN, "Team 1", Player.PlayerRole.STRIKER, this));
-        team1.add(new AIPlayer(0, 0, PLAYER_SIZE, userGkSprite, Color.CYAN, "Team 1", Player.PlayerRole.GOALKEEPER, this));
-        team1.add(new AIPlayer(0, 0, PLAYER_SIZE, userPlayerSprite, Color.CYAN, "Team 1", Player.PlayerRole.DEFENDER, this));
-        team1.add(new AIPlayer(0, 0, PLAYER_SIZE, userPlayerSprite, Color.CYAN, "Team 1", Player.PlayerRole.DEFENDER, this));
-        team1.add(new AIPlayer(0, 0, PLAYER_SIZE, userPlayerSprite, Color.CYAN, "Team 1", Player.PlayerRole.MIDFIELDER, this));
-        team1.add(new AIPlayer(0, 0, PLAYER_SIZE, userPlayerSprite, Color.CYAN, "Team 1", Player.PlayerRole.MIDFIELDER, this));
-        team2.add(new AIPlayer(0, 0, PLAYER_SIZE, aiPlayerSprite, Color.ORANGE, "Team 2", Player.PlayerRole.STRIKER, this));
-        team2.add(new AIPlayer(0, 0, PLAYER_SIZE, aiGkSprite, Color.ORANGE, "Team 2", Player.PlayerRole.GOALKEEPER, this));
-        team2.add(new AIPlayer(0, 0, PLAYER_SIZE, aiPlayerSprite, Color.ORANGE, "Team 2", Player.PlayerRole.DEFENDER, this));
-        team2.add(new AIPlayer(0, 0, PLAYER_SIZE, aiPlayerSprite, Color.ORANGE, "Team 2", Player.PlayerRole.DEFENDER, this));
-        team2.add(new AIPlayer(0, 0, PLAYER_SIZE, aiPlayerSprite, Color.ORANGE, "Team 2", Player.PlayerRole.MIDFIELDER, this));
-        team2.add(new AIPlayer(0, 0, PLAYER_SIZE, aiPlayerSprite, Color.ORANGE, "Team 2", Player.PlayerRole.MIDFIELDER, this));
+        for (int i = 0; i < playersPerTeam; i++) {
+            Player.PlayerRole role = roleForSquadIndex(i);
+            team1.add(new Player(0, 0, PLAYER_SIZE, null, Color.CYAN, "Team 1", role, this));
+        }
+        for (int i = 0; i < playersPerTeam; i++) {
+            team2.add(new Player(0, 0, PLAYER_SIZE, null, Color.ORANGE, "Team 2", roleForSquadIndex(i), this));
+        }
         allPlayers.addAll(team1);
         allPlayers.addAll(team2);
+        ball = new Ball(entities, 0, 0, BALL_SIZE, null);
+        if (humanControlled) {
+            attachHumanController(team1.get(0));
+        }
     }
 
-    @Override
-    public void run() {
-        long lastTime = System.nanoTime();
-        double amountOfTicks = 60.0;
-        double ns = 1000000000 / amountOfTicks;
-        double delta = 0;
-        while (running) {
-            long now = System.nanoTime();
-            delta += (now - lastTime) / ns;
-            lastTime = now;
-            if (delta >= 1) {
-                update();
-                delta--;
-            }
-            repaint();
-            try {
-                Thread.sleep(5);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
+    public HumanController attachHumanController(Player player) {
+        if (player.isHumanControlled()) {
+            throw new IllegalArgumentException("Player is already human controlled");
         }
+        HumanController controller = new HumanController();
+        controller.attachTo(player);
+        player.setController(controller);
+        humanControllers.add(controller);
+        return controller;
     }
 
-    private void update() {
-        if (paused) return;
+    private static Player.PlayerRole roleForSquadIndex(int index) {
+        switch (index) {
+            case 0: return Player.PlayerRole.STRIKER;
+            case 1: return Player.PlayerRole.GOALKEEPER;
+            case 2: case 3: return Player.PlayerRole.DEFENDER;
+            case 4: case 5: return Player.PlayerRole.MIDFIELDER;
+            default:
+                Player.PlayerRole[] outfield = { Player.PlayerRole.DEFENDER, Player.PlayerRole.MIDFIELDER, Player.PlayerRole.STRIKER };
+                return outfield[(index - 6) % outfield.length];
+        }
+    }
+
+    public void setListener(MatchListener listener) {
+        this.listener = (listener != null) ? listener : NO_LISTENER;
+    }
+
+    public void tick() {
+        if (gameState == GameState.GAME_OVER || shootoutDecided) return;
+        tickCount++;
+        storePreviousPositions();
 
         if (gameState == GameState.PENALTY_SHOOTOUT) {
             updatePenaltyShootout();
@@ -976,17 +3454,29 @@ class GamePanel extends JPanel implements Runnable {
 
         if (isGameOver()) {
             gameState = GameState.GAME_OVER;
-            running = false;
-            showGameOverDialog();
+            listener.onFullTime();
             return;
         }
 
-        allPlayers.forEach(Player::move);
+        int playerCount = allPlayers.size();
+        Player dribbler = ball.getDribbler();
+        worldQuery.update(entities, playerCount, ball.id, dribbler == null ? -1 : dribbler.id);
+        aiController.beginTick(tickCount, worldQuery);
+        pitchControl.update(entities, playerCount);
+        for (int i = 0; i < playerCount; i++) {
+            allPlayers.get(i).think();
+        }
+        entities.integrate(0, playerCount, true);
+        for (int i = 0; i < playerCount; i++) {
+            if (entities.dribbling[i]) {
+                allPlayers.get(i).carryBall();
+            }
+        }
         ball.move();
         checkAllCollisions();
 
         if (gameState == GameState.RUNNING) {
-            long currentTime = System.currentTimeMillis();
+            long currentTime = getTimeMillis();
             if (currentTime - lastTickTime >= 1000) {
                 if (remainingSeconds > 0) {
                     remainingSeconds--;
@@ -997,26 +3487,83 @@ class GamePanel extends JPanel implements Runnable {
         }
     }
 
-    private void checkAllCollisions() {
+    public long getTimeMillis() {
+        return tickCount * 1000L / TICKS_PER_SECOND;
+    }
+
+    private void storePreviousPositions() {
+        entities.storePreviousPositions();
+    }
+
+    void checkAllCollisions() {
         ball.checkWallCollision(PLAYABLE_X, PLAYABLE_X + PLAYABLE_WIDTH, PLAYABLE_Y, PLAYABLE_Y + PLAYABLE_HEIGHT);
-        allPlayers.forEach(p -> p.checkCollisions(ball, allPlayers));
+        int playerCount = allPlayers.size();
+        entities.clamp(0, playerCount, PLAYABLE_X, PLAYABLE_X + PLAYABLE_WIDTH, PLAYABLE_Y, PLAYABLE_Y + PLAYABLE_HEIGHT);
+
+        collisionGrid.build(entities.x, entities.y, playerCount);
+        collisionGrid.forEachCandidatePair(playerCollisionResolver);
+
+        for (int i = 0; i < playerCount; i++) {
+            if (entities.dribbling[i]) {
+                checkTackles(allPlayers.get(i));
+            }
+        }
+        if (ball.getDribbler() == null) {
+            checkBallPickup();
+        }
     }
-    
-    private void checkGoal() {
+
+    private void resolvePlayerPair(int first, int second) {
+        Player a = allPlayers.get(first);
+        Player b = allPlayers.get(second);
+        if (a.intersects(b)) {
+            a.resolvePlayerCollision(b);
+        }
+    }
+
+    private void checkTackles(Player dribbler) {
+        int found = collisionGrid.query(dribbler.getX(), dribbler.getY(), dribbler.getX() + dribbler.size, dribbler.getY() + dribbler.size);
+        int tacklerIndex = Integer.MAX_VALUE;
+        for (int k = 0; k < found; k++) {
+            int index = collisionGrid.getQueryResult(k);
+            if (index < tacklerIndex && dribbler.canBeTackledBy(allPlayers.get(index))) {
+                tacklerIndex = index;
+            }
+        }
+        if (tacklerIndex != Integer.MAX_VALUE) {
+            dribbler.losePossession(ball);
+            allPlayers.get(tacklerIndex).kick(ball, 2.0);
+        }
+    }
+
+    private void checkBallPickup() {
+        int found = collisionGrid.query(ball.getX(), ball.getY(), ball.getX() + ball.size, ball.getY() + ball.size);
+        int receiverIndex = Integer.MAX_VALUE;
+        for (int k = 0; k < found; k++) {
+            int index = collisionGrid.getQueryResult(k);
+            if (index < receiverIndex && !entities.dribbling[index] && allPlayers.get(index).intersects(ball)) {
+                receiverIndex = index;
+            }
+        }
+        if (receiverIndex != Integer.MAX_VALUE) {
+            allPlayers.get(receiverIndex).takePossession(ball);
+        }
+    }
+
+    void checkGoal() {
         int goalHeight = 100;
-        Line2D.Double leftGoalLine = new Line2D.Double(PLAYABLE_X, PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2.0, PLAYABLE_X, PLAYABLE_Y + (PLAYABLE_HEIGHT + goalHeight) / 2.0);
-        Line2D.Double rightGoalLine = new Line2D.Double(PLAYABLE_X + PLAYABLE_WIDTH, PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2.0, PLAYABLE_X + PLAYABLE_WIDTH, PLAYABLE_Y + (PLAYABLE_HEIGHT + goalHeight) / 2.0);
-        Rectangle2D.Double ballBounds = ball.getBounds();
-        if (leftGoalLine.intersects(ballBounds)) {
+        double goalTop = PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2.0;
+        double goalBottom = PLAYABLE_Y + (PLAYABLE_HEIGHT + goalHeight) / 2.0;
+        if (ball.touchesVerticalSegment(PLAYABLE_X, goalTop, goalBottom)) {
             scoreTeam2++;
-            soundPlayer.playGoalSound(scoreTeam2);
-            goalMessageStartTime = System.currentTimeMillis();
+            listener.onGoal("Team 2", scoreTeam2);
+            goalMessageStartTime = getTimeMillis();
             this.kickOffTakerTeamName = "Team 1";
             resetPositions();
-        } else if (rightGoalLine.intersects(ballBounds)) {
+        } else if (ball.touchesVerticalSegment(PLAYABLE_X + PLAYABLE_WIDTH, goalTop, goalBottom)) {
             scoreTeam1++;
-            soundPlayer.playGoalSound(scoreTeam1);
-            goalMessageStartTime = System.currentTimeMillis();
+            listener.onGoal("Team 1", scoreTeam1);
+            goalMessageStartTime = getTimeMillis();
             this.kickOffTakerTeamName = "Team 2";
             resetPositions();
         }
@@ -1024,15 +3571,14 @@ class GamePanel extends JPanel implements Runnable {
 
     private void resetPositions() {
         this.gameState = GameState.KICK_OFF;
+        aiController.forgetAll();
         ball.setVelocity(0, 0);
         ball.setDribbler(null);
         passCountTeam1 = 0;
         passCountTeam2 = 0;
         lastPassingTeam = "";
 
-        if (allPlayers != null) {
-            allPlayers.forEach(p -> p.isDribbling = false);
-        }
+        allPlayers.forEach(p -> p.setDribbling(false));
 
         setFormation(team1, 1);
         setFormation(team2, 2);
@@ -1047,20 +3593,14 @@ class GamePanel extends JPanel implements Runnable {
 
         if (kickOffPlayer == null) return;
 
-        if (kickOffTakerTeamName.equals("Team 1")) {
-            Player currentHuman = team1.stream().filter(p -> !(p instanceof AIPlayer)).findFirst().orElse(null);
-            if (currentHuman != kickOffPlayer && kickOffPlayer instanceof AIPlayer) {
-                switchControlToPlayer(kickOffPlayer);
-                kickOffPlayer = team1.stream().filter(p -> !(p instanceof AIPlayer)).findFirst().orElse(null);
-            }
-        }
-        
-        if (kickOffPlayer == null) return;
+        if (!kickOffPlayer.isHumanControlled()) {
+            switchControlToPlayer(kickOffPlayer);
+        }
 
         double centerX = PLAYABLE_X + PLAYABLE_WIDTH / 2.0;
         double centerY = PLAYABLE_Y + PLAYABLE_HEIGHT / 2.0;
         kickOffPlayer.setPosition(centerX - kickOffPlayer.size / 2.0, centerY - kickOffPlayer.size / 2.0);
-        
+
         if (kickOffPlayer.getTeam().equals("Team 1")) {
             kickOffPlayer.setDirection(-1, 0);
         } else {
@@ -1068,9 +3608,10 @@ class GamePanel extends JPanel implements Runnable {
         }
 
         ball.setDribbler(kickOffPlayer);
-        kickOffPlayer.isDribbling = true;
-        kickOffPlayer.possessionStartTime = System.currentTimeMillis();
+        kickOffPlayer.setDribbling(true);
+        kickOffPlayer.setPossessionStartTime(getTimeMillis());
         kickOffPlayer.move();
+        storePreviousPositions();
     }
 
     private void setFormation(List<Player> team, int side) {
@@ -1078,6 +3619,7 @@ class GamePanel extends JPanel implements Runnable {
         double xBase = (side == 1) ? PLAYABLE_X + PLAYABLE_WIDTH / 4.0 : PLAYABLE_X + 3 * PLAYABLE_WIDTH / 4.0;
         List<Player> defenders = team.stream().filter(p -> p.getRole() == Player.PlayerRole.DEFENDER).collect(Collectors.toList());
         List<Player> midfielders = team.stream().filter(p -> p.getRole() == Player.PlayerRole.MIDFIELDER).collect(Collectors.toList());
+        List<Player> strikers = team.stream().filter(p -> p.getRole() == Player.PlayerRole.STRIKER).collect(Collectors.toList());
         for (Player p : team) {
             double homeX = 0, homeY = 0;
             switch (p.getRole()) {
@@ -1087,58 +3629,65 @@ class GamePanel extends JPanel implements Runnable {
                     break;
                 case DEFENDER:
                     homeX = xBase - (side == 1 ? 100 : -100);
-                    homeY = PLAYABLE_Y + ((defenders.indexOf(p) == 0) ? PLAYABLE_HEIGHT / 4.0 : 3 * PLAYABLE_HEIGHT / 4.0);
+                    if (defenders.size() <= 2) {
+                        homeY = PLAYABLE_Y + ((defenders.indexOf(p) == 0) ? PLAYABLE_HEIGHT / 4.0 : 3 * PLAYABLE_HEIGHT / 4.0);
+                    } else {
+                        homeY = spreadAcrossPitch(defenders.indexOf(p), defenders.size());
+                    }
                     break;
                 case MIDFIELDER:
                     homeX = xBase;
-                    homeY = PLAYABLE_Y + ((midfielders.indexOf(p) == 0) ? PLAYABLE_HEIGHT / 4.0 + 40 : 3 * PLAYABLE_HEIGHT / 4.0 - 40);
+                    if (midfielders.size() <= 2) {
+                        homeY = PLAYABLE_Y + ((midfielders.indexOf(p) == 0) ? PLAYABLE_HEIGHT / 4.0 + 40 : 3 * PLAYABLE_HEIGHT / 4.0 - 40);
+                    } else {
+                        homeY = spreadAcrossPitch(midfielders.indexOf(p), midfielders.size());
+                    }
                     break;
                 case STRIKER:
                     homeX = xBase + (side == 1 ? 120 : -120);
-                    homeY = PLAYABLE_Y + PLAYABLE_HEIGHT / 2.0 - PLAYER_SIZE / 2.0;
+                    if (strikers.size() <= 1) {
+                        homeY = PLAYABLE_Y + PLAYABLE_HEIGHT / 2.0 - PLAYER_SIZE / 2.0;
+                    } else {
+                        homeY = spreadAcrossPitch(strikers.indexOf(p), strikers.size());
+                    }
                     break;
             }
             p.setPosition(homeX, homeY);
-            if (p instanceof AIPlayer) {
-                ((AIPlayer) p).setHomePosition(homeX, homeY);
-            }
+            p.setHomePosition(homeX, homeY);
         }
     }
 
-    public void switchControlToPlayer(Player newHumanController) {
-        if (!(newHumanController instanceof AIPlayer)) { return; }
-        Player currentHuman = team1.stream().filter(p -> !(p instanceof AIPlayer)).findFirst().orElse(null);
-        if (currentHuman == null || newHumanController == currentHuman) { return; }
-
-        AIPlayer targetAI = (AIPlayer) newHumanController;
-
-        int humanIndexInTeam1 = team1.indexOf(currentHuman);
-        int aiIndexInTeam1 = team1.indexOf(targetAI);
-        int humanIndexInAll = allPlayers.indexOf(currentHuman);
-        int aiIndexInAll = allPlayers.indexOf(targetAI);
-
-        Player newHuman = new Player(targetAI);
-        newHuman.setVelX(0);
-        newHuman.setVelY(0);
-
-        AIPlayer newAI = new AIPlayer(currentHuman, targetAI.getHomeX(), targetAI.getHomeY());
-        newAI.setVelX(0);
-        newAI.setVelY(0);
+    private static double spreadAcrossPitch(int index, int count) {
+        return PLAYABLE_Y + (index + 1) * PLAYABLE_HEIGHT / (double) (count + 1) - PLAYER_SIZE / 2.0;
+    }
 
-        if (humanIndexInTeam1 != -1 && aiIndexInTeam1 != -1) {
-            team1.set(humanIndexInTeam1, newAI);
-            team1.set(aiIndexInTeam1, newHuman);
-        }
-        if (humanIndexInAll != -1 && aiIndexInAll != -1) {
-            allPlayers.set(humanIndexInAll, newAI);
-            allPlayers.set(aiIndexInAll, newHuman);
+    public void switchControlToPlayer(Player target) {
+        if (target.isHumanControlled()) { return; }
+        HumanController controller = null;
+        double closest = Double.MAX_VALUE;
+        for (int i = 0; i < humanControllers.size(); i++) {
+            HumanController candidate = humanControllers.get(i);
+            Player current = candidate.getPlayer();
+            if (current.getTeamIndex() == target.getTeamIndex() && current.distanceTo(target) < closest) {
+                closest = current.distanceTo(target);
+                controller = candidate;
+            }
         }
+        if (controller == null) { return; }
+
+        Player previous = controller.getPlayer();
+        previous.setController(aiController);
+        aiController.forget(previous);
+        previous.setVelocity(0, 0);
+        target.setController(controller);
+        target.setVelocity(0, 0);
+        controller.attachTo(target);
     }
-    
+
     public void transitionToRunningState() {
         if (this.gameState == GameState.KICK_OFF) {
             this.gameState = GameState.RUNNING;
-            this.lastTickTime = System.currentTimeMillis();
+            this.lastTickTime = getTimeMillis();
         }
     }
 
@@ -1151,80 +3700,25 @@ class GamePanel extends JPanel implements Runnable {
 
         if ("Team 1".equals(teamName)) {
             passCountTeam1++;
-            soundPlayer.playPassSound(passCountTeam1);
+            listener.onPass(teamName, passCountTeam1);
         } else if ("Team 2".equals(teamName)) {
             passCountTeam2++;
-            soundPlayer.playPassSound(passCountTeam2);
+            listener.onPass(teamName, passCountTeam2);
         }
     }
 
-    public SoundPlayer getSoundPlayer() {
-        return this.soundPlayer;
-    }
-
-    public Ball getBall() { return ball; }
-    public List<Player> getTeam(String teamName) { return teamName.equals("Team 1") ? team1 : team2; }
-    private boolean isGameOver() { return remainingSeconds <= 0; }
-    public GameState getGameState() { return gameState; }
-
-    private void showGameOverDialog() {
-        SwingUtilities.invokeLater(() -> {
-            if (scoreTeam1 == scoreTeam2) {
-                javax.swing.Timer timer = new javax.swing.Timer(2000, e -> {
-                    CustomMessageDialog dialog = new CustomMessageDialog(parentFrame, "Shootout", "Penalty Shootout Starts Now");
-                    dialog.setVisible(true);
-
-                    startPenaltyShootout();
-                });
-                timer.setRepeats(false);
-                timer.start();
-                return;
-            }
-
-            MatchResult result = new MatchResult(userTeam.name(), scoreTeam1, aiTeam.name(), scoreTeam2);
-            matchHistory.addResult(result);
-
-            String line1;
-            java.util.function.Function<Team, String> formatName = t -> {
-                if (t == null) return "Unknown";
-                String name = t.name().toLowerCase();
-                return Character.toUpperCase(name.charAt(0)) + name.substring(1);
-            };
-
-            if (scoreTeam1 > scoreTeam2) {
-                line1 = formatName.apply(userTeam) + " Wins! 🏆";
-            } else {
-                line1 = formatName.apply(aiTeam) + " Wins!";
-            }
-            
-            String userAbbr = (userTeam != null) ? userTeam.getAbbreviation() : "USER";
-            String aiAbbr = (aiTeam != null) ? aiTeam.getAbbreviation() : "AI";
-            String line2 = "Final Score: " + userAbbr + " " + scoreTeam1 + " - " + scoreTeam2 + " " + aiAbbr;
-
-            CustomGameOverDialog dialog = new CustomGameOverDialog(parentFrame, "Game Over", line1, line2, onGameEnd);
-            dialog.setVisible(true);
-        });
+    public void handleShot() {
+        aiController.interrupt();
+        listener.onShot();
     }
 
-    private void startPenaltyShootout() {
+    public void startPenaltyShootout() {
         gameState = GameState.PENALTY_SHOOTOUT;
         penaltyState = PenaltyState.AIMING;
-        isUserTurnToShoot = true; 
-        running = true; 
-
-        team1.stream()
-            .filter(p -> p.getRole() == Player.PlayerRole.GOALKEEPER)
-            .findFirst()
-            .ifPresent(gk -> gk.setSprite(userGkPenaltySprite));
-
+        isUserTurnToShoot = true;
         resetForPenaltyKick();
-        if (gameThread == null || !gameThread.isAlive()) {
-             gameThread = new Thread(this);
-             gameThread.start();
-        }
-        requestFocusInWindow();
     }
-    
+
     private void updatePenaltyShootout() {
         ball.move();
         penaltyKicker.move();
@@ -1234,71 +3728,110 @@ class GamePanel extends JPanel implements Runnable {
             double goalTop = PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2.0;
             double goalBottom = PLAYABLE_Y + (PLAYABLE_HEIGHT + goalHeight) / 2.0;
             double goalLineX = PLAYABLE_X + PLAYABLE_WIDTH - PLAYER_SIZE - 5;
-    
-            penaltyGoalkeeper.x = goalLineX;
-    
-            if (penaltyGoalkeeper.y < goalTop) {
-                penaltyGoalkeeper.y = goalTop;
+
+            penaltyGoalkeeper.setX(goalLineX);
+
+            if (penaltyGoalkeeper.getY() < goalTop) {
+                penaltyGoalkeeper.setY(goalTop);
                 penaltyGoalkeeper.setVelY(0);
-            } else if (penaltyGoalkeeper.y + penaltyGoalkeeper.size > goalBottom) {
-                penaltyGoalkeeper.y = goalBottom - penaltyGoalkeeper.size;
+            } else if (penaltyGoalkeeper.getY() + penaltyGoalkeeper.size > goalBottom) {
+                penaltyGoalkeeper.setY(goalBottom - penaltyGoalkeeper.size);
                 penaltyGoalkeeper.setVelY(0);
             }
         }
-    
-        if (ball.y <= PLAYABLE_Y || ball.y >= (PLAYABLE_Y + PLAYABLE_HEIGHT) - ball.size) {
-            ball.velY *= -1;
-            ball.y = Math.max(PLAYABLE_Y, Math.min(ball.y, (PLAYABLE_Y + PLAYABLE_HEIGHT) - ball.size));
+
+        if (ball.getY() <= PLAYABLE_Y || ball.getY() >= (PLAYABLE_Y + PLAYABLE_HEIGHT) - ball.size) {
+            ball.setVelY(-ball.getVelY());
+            ball.setY(Math.max(PLAYABLE_Y, Math.min(ball.getY(), (PLAYABLE_Y + PLAYABLE_HEIGHT) - ball.size)));
         }
-    
-        List<Player> penaltyPlayers = new ArrayList<>();
-        penaltyPlayers.add(penaltyKicker);
-        penaltyPlayers.add(penaltyGoalkeeper);
+
+        penaltyPlayers.set(0, penaltyKicker);
+        penaltyPlayers.set(1, penaltyGoalkeeper);
         penaltyGoalkeeper.checkCollisions(ball, penaltyPlayers);
-    
+
         if (penaltyState == PenaltyState.KICKING) {
             int goalHeight = 100;
             double goalTop = PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2.0;
             double goalBottom = PLAYABLE_Y + (PLAYABLE_HEIGHT + goalHeight) / 2.0;
-    
-            boolean goalScored = ball.x + ball.size >= (PLAYABLE_X + PLAYABLE_WIDTH) &&
+
+            boolean goalScored = ball.getX() + ball.size >= (PLAYABLE_X + PLAYABLE_WIDTH) &&
                                  ball.getCenterY() > goalTop && ball.getCenterY() < goalBottom;
-    
+
             if (goalScored && ball.getDribbler() == null) {
                 handlePenaltyGoal();
                 return;
             }
         }
-    
+
         if (penaltyState == PenaltyState.AIMING) {
-            if (!isUserTurnToShoot) {
-                if (System.currentTimeMillis() - penaltyMessageStartTime > 1500) {
+            if (getTimeMillis() - penaltyMessageStartTime > 1500) {
+                if (!isUserTurnToShoot) {
+                    if (!humanControlled) {
+                        userDiveDirection = randomShotDirection();
+                    }
                     penaltyState = PenaltyState.KICKING;
-                    shotDirection = ShotDirection.values()[random.nextInt(3)];
+                    shotDirection = randomShotDirection();
                     shootTheBall();
                     goalkeeperDive(userDiveDirection);
+                } else if (!humanControlled) {
+                    shotDirection = randomShotDirection();
+                    takePenaltyShot();
                 }
             }
         } else if (penaltyState == PenaltyState.KICKING) {
-            if ((Math.abs(ball.velX) < 0.5 && Math.abs(ball.velY) < 0.5) || ball.getDribbler() == penaltyGoalkeeper) {
+            if ((Math.abs(ball.getVelX()) < 0.5 && Math.abs(ball.getVelY()) < 0.5) || ball.getDribbler() == penaltyGoalkeeper) {
                 handlePenaltyResult();
             }
         } else if (penaltyState == PenaltyState.RESULT) {
-            if (System.currentTimeMillis() - penaltyMessageStartTime > 2000) {
+            if (getTimeMillis() - penaltyMessageStartTime > 2000) {
                 if (checkPenaltyWinCondition()) {
-                    showPenaltyEndDialog();
+                    shootoutDecided = true;
+                    listener.onShootoutOver();
                 } else {
                     nextPenaltyTaker();
                 }
             }
         }
     }
+
+    private ShotDirection randomShotDirection() {
+        return ShotDirection.values()[random.nextInt(3)];
+    }
+
+    double jitter(double spread) {
+        return (random.nextDouble() * 2 - 1) * spread;
+    }
+
+    public void aimPenalty(ShotDirection direction) {
+        if (isAwaitingPenaltyInput() && isUserTurnToShoot) {
+            shotDirection = direction;
+        }
+    }
+
+    public void chooseDive(ShotDirection direction) {
+        if (isAwaitingPenaltyInput() && !isUserTurnToShoot) {
+            userDiveDirection = direction;
+        }
+    }
+
+    public void takePenaltyShot() {
+        if (isAwaitingPenaltyInput() && isUserTurnToShoot) {
+            penaltyState = PenaltyState.KICKING;
+            shootTheBall();
+            goalkeeperDive(randomShotDirection());
+        }
+    }
+
+    private boolean isAwaitingPenaltyInput() {
+        return gameState == GameState.PENALTY_SHOOTOUT && penaltyState == PenaltyState.AIMING;
+    }
+
     private void resetForPenaltyKick() {
         Player currentDribbler = ball.getDribbler();
         if (currentDribbler != null) {
             currentDribbler.losePossession(ball);
         }
-        
+
         ball.setVelocity(0, 0);
         ball.setDribbler(null);
 
@@ -1309,35 +3842,38 @@ class GamePanel extends JPanel implements Runnable {
             penaltyKicker = team2.stream().filter(p -> p.getRole() == Player.PlayerRole.STRIKER).findFirst().get();
             penaltyGoalkeeper = team1.stream().filter(p -> p.getRole() == Player.PlayerRole.GOALKEEPER).findFirst().get();
         }
-        
+
         double penaltySpotX = PLAYABLE_X + PLAYABLE_WIDTH - 150;
         double penaltySpotY = PLAYABLE_Y + PLAYABLE_HEIGHT / 2.0;
 
         ball.setPosition(penaltySpotX - ball.size / 2.0, penaltySpotY - ball.size / 2.0);
-        
+
         penaltyKicker.setDirection(1, 0);
         penaltyKicker.setPosition(penaltySpotX - PLAYER_SIZE - 10, penaltySpotY - PLAYER_SIZE / 2.0);
-        
+
         double gkX = PLAYABLE_X + PLAYABLE_WIDTH - PLAYER_SIZE - 5;
         double gkY = PLAYABLE_Y + PLAYABLE_HEIGHT / 2.0 - PLAYER_SIZE / 2.0;
         penaltyGoalkeeper.setPosition(gkX, gkY);
-        
+
         penaltyKicker.setVelX(0); penaltyKicker.setVelY(0);
         penaltyGoalkeeper.setVelX(0); penaltyGoalkeeper.setVelY(0);
 
         penaltyState = PenaltyState.AIMING;
         shotDirection = ShotDirection.CENTER;
         userDiveDirection = ShotDirection.CENTER;
-        penaltyMessageStartTime = System.currentTimeMillis(); 
+        penaltyMessageStartTime = getTimeMillis();
+        ball.storePreviousPosition();
+        penaltyKicker.storePreviousPosition();
+        penaltyGoalkeeper.storePreviousPosition();
     }
 
     private void shootTheBall() {
-        soundPlayer.playShootSound();
+        listener.onShot();
         double targetY;
         int goalHeight = 100;
         int goalTop = PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2;
         int goalBottom = goalTop + goalHeight;
-        
+
         switch(shotDirection) {
             case LEFT: targetY = goalTop + goalHeight * 0.25; break;
             case RIGHT: targetY = goalBottom - goalHeight * 0.25; break;
@@ -1354,416 +3890,971 @@ class GamePanel extends JPanel implements Runnable {
     private void goalkeeperDive(ShotDirection diveDirection) {
         double diveDistance = 10.0;
         penaltyGoalkeeper.setVelY(0);
-    
+
         switch (diveDirection) {
             case LEFT:
-                penaltyGoalkeeper.y -= diveDistance;
+                penaltyGoalkeeper.setY(penaltyGoalkeeper.getY() - diveDistance);
                 break;
             case RIGHT:
-                penaltyGoalkeeper.y += diveDistance;
+                penaltyGoalkeeper.setY(penaltyGoalkeeper.getY() + diveDistance);
                 break;
             case CENTER:
                 break;
         }
     }
-    
+
     private void handlePenaltyResult() {
         penaltyState = PenaltyState.RESULT;
-        penaltyMessageStartTime = System.currentTimeMillis();
-    
+        penaltyMessageStartTime = getTimeMillis();
+
         boolean saved = ball.getDribbler() == penaltyGoalkeeper;
-    
+
         if (saved) {
             penaltyMessage = "SAVED!";
-            soundPlayer.playSaveSound();
+            listener.onPenaltySaved();
             ball.setVelocity(0, 0);
         } else {
             penaltyMessage = "MISS!";
-            soundPlayer.playMissSound();
+            listener.onPenaltyMissed();
+        }
+    }
+
+    private void handlePenaltyGoal() {
+        penaltyState = PenaltyState.RESULT;
+        penaltyMessageStartTime = getTimeMillis();
+        penaltyMessage = "GOAL!";
+        listener.onGoal(isUserTurnToShoot ? "Team 1" : "Team 2", 1);
+        if (isUserTurnToShoot) {
+            penaltyScoreTeam1++;
+        } else {
+            penaltyScoreTeam2++;
+        }
+        ball.setVelocity(0, 0);
+    }
+
+    private void nextPenaltyTaker() {
+        if(isUserTurnToShoot) penaltyKicksTeam1++; else penaltyKicksTeam2++;
+        isUserTurnToShoot = !isUserTurnToShoot;
+        penaltyMessage = "";
+        resetForPenaltyKick();
+    }
+
+    private boolean checkPenaltyWinCondition() {
+        if (penaltyKicksTeam1 < 5 || penaltyKicksTeam2 < 5) {
+            int remaining1 = 5 - penaltyKicksTeam1;
+            int remaining2 = 5 - penaltyKicksTeam2;
+            if (penaltyScoreTeam1 > penaltyScoreTeam2 + remaining2) return true;
+            if (penaltyScoreTeam2 > penaltyScoreTeam1 + remaining1) return true;
+        } else {
+            if (penaltyKicksTeam1 == penaltyKicksTeam2 && penaltyScoreTeam1 != penaltyScoreTeam2) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public boolean isShootoutPending() {
+        return gameState == GameState.GAME_OVER && scoreTeam1 == scoreTeam2;
+    }
+
+    public boolean isFinished() {
+        return (gameState == GameState.GAME_OVER && scoreTeam1 != scoreTeam2) || shootoutDecided;
+    }
+
+    public boolean isShowingGoalMessage() {
+        return getTimeMillis() - goalMessageStartTime < GOAL_MESSAGE_MILLIS;
+    }
+
+    public Player getHumanPlayer() {
+        return humanControllers.isEmpty() ? null : humanControllers.get(0).getPlayer();
+    }
+
+    public Ball getBall() { return ball; }
+    public List<Player> getTeam(String teamName) { return teamName.equals("Team 1") ? team1 : team2; }
+    public List<Player> getAllPlayers() { return allPlayers; }
+    private boolean isGameOver() { return remainingSeconds <= 0; }
+    public GameState getGameState() { return gameState; }
+    public Difficulty getDifficulty() { return difficulty; }
+    public PenaltyState getPenaltyState() { return penaltyState; }
+    public ShotDirection getShotDirection() { return shotDirection; }
+    public ShotDirection getUserDiveDirection() { return userDiveDirection; }
+    public boolean isUserTurnToShoot() { return isUserTurnToShoot; }
+    public String getPenaltyMessage() { return penaltyMessage; }
+    public Player getPenaltyKicker() { return penaltyKicker; }
+    public Player getPenaltyGoalkeeper() { return penaltyGoalkeeper; }
+    public int getScoreTeam1() { return scoreTeam1; }
+    public int getScoreTeam2() { return scoreTeam2; }
+    public int getPenaltyScoreTeam1() { return penaltyScoreTeam1; }
+    public int getPenaltyScoreTeam2() { return penaltyScoreTeam2; }
+    public int getRemainingSeconds() { return remainingSeconds; }
+    public long getTickCount() { return tickCount; }
+    public List<HumanController> getHumanControllers() { return humanControllers; }
+    EntityStore getEntityStore() { return entities; }
+    WorldQuery getWorldQuery() { return worldQuery; }
+    PassEvaluator getPassEvaluator() { return passEvaluator; }
+    PitchControl getPitchControl() { return pitchControl; }
+    AIController getAIController() { return aiController; }
+}
+
+class BallPredictor {
+    private static final double FRICTION = Ball.FRICTION;
+    private static final double LOG_FRICTION = Math.log(FRICTION);
+    private static final double REST_SPEED = 0.05;
+    private static final int MAX_HORIZON = 600;
+    private static final int MAX_INTERCEPT_STEPS = 48;
+    private static final double[] TRAVEL = new double[MAX_HORIZON + 1];
+
+    static {
+        for (int n = 0; n <= MAX_HORIZON; n++) {
+            TRAVEL[n] = travel(n);
+        }
+    }
+
+    private final double minX = MatchSimulation.PLAYABLE_X;
+    private final double minY = MatchSimulation.PLAYABLE_Y;
+    private double spanX;
+    private double spanY;
+    private double x0;
+    private double y0;
+    private double vx;
+    private double vy;
+    private double half;
+    private int horizon;
+    private double interceptX;
+    private double interceptY;
+    private int interceptTick;
+
+    public void update(double x, double y, double velX, double velY, int size) {
+        x0 = x;
+        y0 = y;
+        vx = velX;
+        vy = velY;
+        half = size / 2.0;
+        spanX = MatchSimulation.PLAYABLE_WIDTH - size;
+        spanY = MatchSimulation.PLAYABLE_HEIGHT - size;
+        double speed = Math.sqrt(velX * velX + velY * velY);
+        horizon = speed <= REST_SPEED ? 0 : (int) Math.min(MAX_HORIZON, Math.ceil(Math.log(REST_SPEED / speed) / LOG_FRICTION));
+    }
+
+    public double centerX(double ticks) {
+        return fold(x0 + vx * travel(ticks), minX, spanX) + half;
+    }
+
+    public double centerY(double ticks) {
+        return fold(y0 + vy * travel(ticks), minY, spanY) + half;
+    }
+
+    public double getStopX() { return fold(x0 + vx * TRAVEL[horizon], minX, spanX) + half; }
+    public double getStopY() { return fold(y0 + vy * TRAVEL[horizon], minY, spanY) + half; }
+    public int getHorizon() { return horizon; }
+
+    public double ticksToReachX(double centerLineX) {
+        if (vx == 0 || spanX <= 0) return -1;
+        double offset = centerLineX - half - minX;
+        if (offset < 0 || offset > spanX) return -1;
+        double period = 2 * spanX;
+        double start = x0 - minX;
+        double first = nextCrossing(start, offset, period);
+        double second = nextCrossing(start, period - offset, period);
+        double crossing = vx > 0 ? Math.min(first, second) : Math.max(first, second);
+        double needed = (crossing - start) * (1 - FRICTION) / vx;
+        if (needed >= 1) return -1;
+        double ticks = Math.log(1 - needed) / LOG_FRICTION;
+        return ticks <= horizon ? ticks : -1;
+    }
+
+    public boolean intercept(double px, double py, double speed, double reach) {
+        double ballSpeed = Math.sqrt(vx * vx + vy * vy);
+        int tick = 0;
+        for (int step = 0; step < MAX_INTERCEPT_STEPS && tick <= horizon; step++) {
+            double gap = gap(px, py, speed, reach, tick);
+            if (gap <= 0) {
+                interceptTick = tick;
+                interceptX = fold(x0 + vx * TRAVEL[tick], minX, spanX) + half;
+                interceptY = fold(y0 + vy * TRAVEL[tick], minY, spanY) + half;
+                return true;
+            }
+            double closing = ballSpeed * (1 - TRAVEL[tick] * (1 - FRICTION)) + speed;
+            if (closing <= 0) break;
+            tick += (int) Math.max(1, Math.min(horizon + 1, gap / closing));
+        }
+        interceptTick = horizon;
+        interceptX = getStopX();
+        interceptY = getStopY();
+        return false;
+    }
+
+    public double getInterceptX() { return interceptX; }
+    public double getInterceptY() { return interceptY; }
+    public int getInterceptTick() { return interceptTick; }
+
+    private double nextCrossing(double start, double residue, double period) {
+        double laps = (start - residue) / period;
+        return residue + (vx > 0 ? Math.ceil(laps) : Math.floor(laps)) * period;
+    }
+
+    private double gap(double px, double py, double speed, double reach, int ticks) {
+        double dx = fold(x0 + vx * TRAVEL[ticks], minX, spanX) + half - px;
+        double dy = fold(y0 + vy * TRAVEL[ticks], minY, spanY) + half - py;
+        return Math.sqrt(dx * dx + dy * dy) - speed * ticks - reach;
+    }
+
+    private static double travel(double ticks) {
+        return (1 - Math.pow(FRICTION, ticks)) / (1 - FRICTION);
+    }
+
+    private static double fold(double position, double min, double span) {
+        if (span <= 0) return min;
+        double period = 2 * span;
+        double offset = (position - min) % period;
+        if (offset < 0) offset += period;
+        return min + (offset <= span ? offset : period - offset);
+    }
+}
+
+class PassEvaluator {
+    static final double PASS_SPEED = 9.0;
+    private static final double LOG_FRICTION = Math.log(Ball.FRICTION);
+    private static final double MAX_PASS_DISTANCE = 0.9 * PASS_SPEED / (1 - Ball.FRICTION);
+    private static final double SAFETY_CAP = 30;
+    private static final double PROGRESS_WEIGHT = 1 / 40.0;
+    private static final double TIME_WEIGHT = 0.25;
+    private static final int MAX_CANDIDATES = 4;
+    private static final byte GOALKEEPER = (byte) Player.PlayerRole.GOALKEEPER.ordinal();
+
+    private final EntityStore store;
+    private final int[] candidateIndex = new int[MAX_CANDIDATES];
+    private final double[] candidateLength = new double[MAX_CANDIDATES];
+
+    public PassEvaluator(EntityStore store) {
+        this.store = store;
+    }
+
+    public int findReceiver(int passer, double fromX, double fromY, int playerCount, double opponentSpeed) {
+        return findReceiver(passer, fromX, fromY, playerCount, opponentSpeed, Double.NEGATIVE_INFINITY);
+    }
+
+    public int findReceiver(int passer, double fromX, double fromY, int playerCount, double opponentSpeed, double minSafety) {
+        byte team = store.team[passer];
+        double passerX = centerX(passer);
+        double passerY = centerY(passer);
+        double forwardX = store.dirX[passer];
+        double forwardY = store.dirY[passer];
+        double attack = team == 0 ? 1 : -1;
+        int candidates = 0;
+        for (int r = 0; r < playerCount; r++) {
+            if (r == passer || store.team[r] != team || store.role[r] == GOALKEEPER) continue;
+            double toX = centerX(r);
+            double toY = centerY(r);
+            if (forwardX * (toX - passerX) + forwardY * (toY - passerY) <= 0) continue;
+            double laneX = toX - fromX;
+            double laneY = toY - fromY;
+            double length = Math.sqrt(laneX * laneX + laneY * laneY);
+            if (length > MAX_PASS_DISTANCE || length == 0) continue;
+            if (candidates == MAX_CANDIDATES && length >= candidateLength[MAX_CANDIDATES - 1]) continue;
+            int slot = Math.min(candidates, MAX_CANDIDATES - 1);
+            while (slot > 0 && candidateLength[slot - 1] > length) {
+                candidateIndex[slot] = candidateIndex[slot - 1];
+                candidateLength[slot] = candidateLength[slot - 1];
+                slot--;
+            }
+            candidateIndex[slot] = r;
+            candidateLength[slot] = length;
+            candidates = Math.min(candidates + 1, MAX_CANDIDATES);
+        }
+
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < candidates; c++) {
+            int r = candidateIndex[c];
+            double length = candidateLength[c];
+            double toX = centerX(r);
+            double toY = centerY(r);
+            double laneX = toX - fromX;
+            double laneY = toY - fromY;
+            double bonus = (toX - passerX) * attack * PROGRESS_WEIGHT - ballTicks(length) * TIME_WEIGHT;
+            double floor = Math.max(minSafety, bestScore - bonus);
+            if (SAFETY_CAP < floor) continue;
+            double safety = laneSafety(team, fromX, fromY, laneX, laneY, length, playerCount, opponentSpeed, floor);
+            if (safety < floor) continue;
+            double score = safety + bonus;
+            if (score > bestScore) {
+                bestScore = score;
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    public double nearestOpponentDistance(int player, int playerCount) {
+        byte team = store.team[player];
+        double px = centerX(player);
+        double py = centerY(player);
+        double nearest = Double.MAX_VALUE;
+        for (int o = 0; o < playerCount; o++) {
+            if (store.team[o] == team) continue;
+            double dx = centerX(o) - px;
+            double dy = centerY(o) - py;
+            nearest = Math.min(nearest, dx * dx + dy * dy);
+        }
+        return Math.sqrt(nearest);
+    }
+
+    private double laneSafety(byte team, double fromX, double fromY, double laneX, double laneY, double length,
+            int playerCount, double opponentSpeed, double floor) {
+        double reach = (MatchSimulation.PLAYER_SIZE + MatchSimulation.BALL_SIZE) / 2.0;
+        double safety = SAFETY_CAP;
+        for (int o = 0; o < playerCount; o++) {
+            if (store.team[o] == team) continue;
+            double ox = centerX(o) - fromX;
+            double oy = centerY(o) - fromY;
+            double along = (ox * laneX + oy * laneY) / (length * length);
+            along = Math.max(0, Math.min(1, along));
+            double dx = ox - laneX * along;
+            double dy = oy - laneY * along;
+            double lateral = Math.sqrt(dx * dx + dy * dy);
+            double opponentTicks = Math.max(0, lateral - reach) / opponentSpeed;
+            safety = Math.min(safety, opponentTicks - ballTicks(along * length));
+            if (safety < floor) break;
+        }
+        return safety;
+    }
+
+    private static double ballTicks(double distance) {
+        return Math.log(1 - distance * (1 - Ball.FRICTION) / PASS_SPEED) / LOG_FRICTION;
+    }
+
+    private double centerX(int index) {
+        return store.x[index] + store.size[index] / 2.0;
+    }
+
+    private double centerY(int index) {
+        return store.y[index] + store.size[index] / 2.0;
+    }
+}
+
+class PitchControl {
+    public static final int CELL_SIZE = 40;
+    private static final int EVALUATION_BUDGET = 240;
+    private static final int MIN_CELLS_PER_TICK = 2;
+    private static final double LOOKAHEAD_TICKS = 15;
+    private static final double CONTESTED_TICKS = 20;
+    private static final double DISTANCE_WEIGHT = 0.5;
+
+    private final int columns = (MatchSimulation.PLAYABLE_WIDTH + CELL_SIZE - 1) / CELL_SIZE;
+    private final int rows = (MatchSimulation.PLAYABLE_HEIGHT + CELL_SIZE - 1) / CELL_SIZE;
+    private final float[] control = new float[columns * rows];
+    private final double playerSpeed;
+    private int cursor;
+    private double foundX;
+    private double foundY;
+
+    public PitchControl(double playerSpeed) {
+        this.playerSpeed = playerSpeed;
+    }
+
+    public void update(EntityStore store, int playerCount) {
+        int cells = Math.min(control.length, Math.max(MIN_CELLS_PER_TICK, EVALUATION_BUDGET / Math.max(1, playerCount)));
+        for (int k = 0; k < cells; k++) {
+            control[cursor] = evaluate(store, playerCount, cursor);
+            cursor = cursor + 1 == control.length ? 0 : cursor + 1;
+        }
+    }
+
+    private float evaluate(EntityStore store, int playerCount, int cell) {
+        double cellX = MatchSimulation.PLAYABLE_X + (cell % columns + 0.5) * CELL_SIZE;
+        double cellY = MatchSimulation.PLAYABLE_Y + (cell / columns + 0.5) * CELL_SIZE;
+        double[] xs = store.x, ys = store.y, velX = store.velX, velY = store.velY;
+        int[] sizes = store.size;
+        byte[] teams = store.team;
+        double nearest0 = Double.MAX_VALUE;
+        double nearest1 = Double.MAX_VALUE;
+        for (int i = 0; i < playerCount; i++) {
+            double half = sizes[i] * 0.5;
+            double dx = xs[i] + half + velX[i] * LOOKAHEAD_TICKS - cellX;
+            double dy = ys[i] + half + velY[i] * LOOKAHEAD_TICKS - cellY;
+            double distanceSq = dx * dx + dy * dy;
+            if (teams[i] == 0) {
+                if (distanceSq < nearest0) nearest0 = distanceSq;
+            } else if (distanceSq < nearest1) {
+                nearest1 = distanceSq;
+            }
+        }
+        double advantage = (Math.sqrt(nearest1) - Math.sqrt(nearest0)) / playerSpeed;
+        return (float) (advantage / (Math.abs(advantage) + CONTESTED_TICKS));
+    }
+
+    public double sample(int team, double x, double y) {
+        int column = Math.max(0, Math.min(columns - 1, (int) ((x - MatchSimulation.PLAYABLE_X) / CELL_SIZE)));
+        int row = Math.max(0, Math.min(rows - 1, (int) ((y - MatchSimulation.PLAYABLE_Y) / CELL_SIZE)));
+        float value = control[row * columns + column];
+        return team == 0 ? value : -value;
+    }
+
+    public void search(int team, double x, double y, int radius, boolean openSpace) {
+        int centerColumn = Math.max(0, Math.min(columns - 1, (int) ((x - MatchSimulation.PLAYABLE_X) / CELL_SIZE)));
+        int centerRow = Math.max(0, Math.min(rows - 1, (int) ((y - MatchSimulation.PLAYABLE_Y) / CELL_SIZE)));
+        double reach = (radius + 1) * CELL_SIZE;
+        double distanceWeight = DISTANCE_WEIGHT / (reach * reach);
+        double bestScore = Double.NEGATIVE_INFINITY;
+        foundX = x;
+        foundY = y;
+        for (int row = Math.max(0, centerRow - radius); row <= Math.min(rows - 1, centerRow + radius); row++) {
+            for (int column = Math.max(0, centerColumn - radius); column <= Math.min(columns - 1, centerColumn + radius); column++) {
+                float value = control[row * columns + column];
+                double owned = team == 0 ? value : -value;
+                double cellX = MatchSimulation.PLAYABLE_X + (column + 0.5) * CELL_SIZE;
+                double cellY = MatchSimulation.PLAYABLE_Y + (row + 0.5) * CELL_SIZE;
+                double dx = cellX - x;
+                double dy = cellY - y;
+                double score = (openSpace ? owned : -owned) - (dx * dx + dy * dy) * distanceWeight;
+                if (score > bestScore) {
+                    bestScore = score;
+                    foundX = cellX;
+                    foundY = cellY;
+                }
+            }
+        }
+    }
+
+    public double getFoundX() { return foundX; }
+    public double getFoundY() { return foundY; }
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
+    public float[] getControl() { return control; }
+}
+
+class WorldQuery {
+    private static final byte GOALKEEPER = (byte) Player.PlayerRole.GOALKEEPER.ordinal();
+    private static final double[] OPPONENT_GOAL_X = {
+        MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH, MatchSimulation.PLAYABLE_X
+    };
+
+    private final int[] closestToBall = new int[2];
+    private final BallPredictor ballPredictor = new BallPredictor();
+    private double[] ballDistance = new double[0];
+    private double[] goalDistance = new double[0];
+    private int possessionOwner = -1;
+    private double ballCenterX;
+    private double ballCenterY;
+
+    public void update(EntityStore store, int playerCount, int ballIndex, int dribblerIndex) {
+        if (ballDistance.length < playerCount) {
+            ballDistance = new double[playerCount];
+            goalDistance = new double[playerCount];
+        }
+        ballCenterX = store.x[ballIndex] + store.size[ballIndex] / 2.0;
+        ballCenterY = store.y[ballIndex] + store.size[ballIndex] / 2.0;
+        possessionOwner = dribblerIndex;
+        ballPredictor.update(store.x[ballIndex], store.y[ballIndex], store.velX[ballIndex], store.velY[ballIndex], store.size[ballIndex]);
+        closestToBall[0] = -1;
+        closestToBall[1] = -1;
+        for (int i = 0; i < playerCount; i++) {
+            double half = store.size[i] / 2.0;
+            double centerX = store.x[i] + half;
+            double dx = centerX - ballCenterX;
+            double dy = store.y[i] + half - ballCenterY;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            int team = store.team[i];
+            ballDistance[i] = distance;
+            goalDistance[i] = Math.abs(centerX - OPPONENT_GOAL_X[team]);
+            if (store.role[i] != GOALKEEPER) {
+                int closest = closestToBall[team];
+                if (closest < 0 || distance < ballDistance[closest]) {
+                    closestToBall[team] = i;
+                }
+            }
+        }
+    }
+
+    public int getClosestToBall(int team) { return closestToBall[team]; }
+    public int getPossessionOwner() { return possessionOwner; }
+    public double getBallDistance(int index) { return ballDistance[index]; }
+    public double getGoalDistance(int index) { return goalDistance[index]; }
+    public double getBallCenterX() { return ballCenterX; }
+    public double getBallCenterY() { return ballCenterY; }
+    public BallPredictor getBallPredictor() { return ballPredictor; }
+}
+
+class SpatialGrid {
+    private static final int BRUTE_FORCE_LIMIT = 16;
+
+    interface PairVisitor {
+        void visit(int first, int second);
+    }
+
+    private final double originX;
+    private final double originY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellCursor;
+    private int[] entries = new int[0];
+    private int[] cellOf = new int[0];
+    private int[] queryResults = new int[0];
+    private int count;
+
+    public SpatialGrid(double originX, double originY, double width, double height, double cellSize) {
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cellStart = new int[columns * rows + 1];
+        this.cellCursor = new int[columns * rows];
+    }
+
+    public void build(double[] xs, double[] ys, int count) {
+        this.count = count;
+        if (entries.length < count) {
+            entries = new int[count];
+            cellOf = new int[count];
+            queryResults = new int[count];
+        }
+        if (count <= BRUTE_FORCE_LIMIT) {
+            return;
+        }
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < count; i++) {
+            int cell = row(ys[i]) * columns + column(xs[i]);
+            cellOf[i] = cell;
+            cellStart[cell + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+            cellCursor[c] = cellStart[c];
+        }
+        for (int i = 0; i < count; i++) {
+            entries[cellCursor[cellOf[i]]++] = i;
         }
     }
 
-    private void handlePenaltyGoal() {
-        penaltyState = PenaltyState.RESULT;
-        penaltyMessageStartTime = System.currentTimeMillis();
-        penaltyMessage = "GOAL!";
-        soundPlayer.playGoalSound(1);
-        if (isUserTurnToShoot) {
-            penaltyScoreTeam1++;
-        } else {
-            penaltyScoreTeam2++;
+    public void forEachCandidatePair(PairVisitor visitor) {
+        if (count <= BRUTE_FORCE_LIMIT) {
+            for (int first = 0; first < count; first++) {
+                for (int second = first + 1; second < count; second++) {
+                    visitor.visit(first, second);
+                }
+            }
+            return;
+        }
+        for (int e = 0; e < count; e++) {
+            int first = entries[e];
+            int cell = cellOf[first];
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int f = e + 1; f < cellStart[cell + 1]; f++) {
+                visitor.visit(first, entries[f]);
+            }
+            visitNeighbour(visitor, first, column + 1, row);
+            visitNeighbour(visitor, first, column - 1, row + 1);
+            visitNeighbour(visitor, first, column, row + 1);
+            visitNeighbour(visitor, first, column + 1, row + 1);
         }
-        ball.setVelocity(0, 0);
     }
-    
-    private void nextPenaltyTaker() {
-        if(isUserTurnToShoot) penaltyKicksTeam1++; else penaltyKicksTeam2++;
-        isUserTurnToShoot = !isUserTurnToShoot;
-        penaltyMessage = "";
-        resetForPenaltyKick();
+
+    private void visitNeighbour(PairVisitor visitor, int first, int column, int row) {
+        if (column < 0 || column >= columns || row >= rows) return;
+        int cell = row * columns + column;
+        for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+            visitor.visit(first, entries[e]);
+        }
     }
-    
-    private boolean checkPenaltyWinCondition() {
-        if (penaltyKicksTeam1 < 5 || penaltyKicksTeam2 < 5) {
-            int remaining1 = 5 - penaltyKicksTeam1;
-            int remaining2 = 5 - penaltyKicksTeam2;
-            if (penaltyScoreTeam1 > penaltyScoreTeam2 + remaining2) return true;
-            if (penaltyScoreTeam2 > penaltyScoreTeam1 + remaining1) return true;
-        } else {
-            if (penaltyKicksTeam1 == penaltyKicksTeam2 && penaltyScoreTeam1 != penaltyScoreTeam2) {
-                return true;
+
+    public int query(double minX, double minY, double maxX, double maxY) {
+        if (count <= BRUTE_FORCE_LIMIT) {
+            for (int i = 0; i < count; i++) {
+                queryResults[i] = i;
             }
+            return count;
         }
-        
-        return false;
+        int found = 0;
+        int firstColumn = column(minX - cellSize), lastColumn = column(maxX + cellSize);
+        int firstRow = row(minY - cellSize), lastRow = row(maxY + cellSize);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                    queryResults[found++] = entries[e];
+                }
+            }
+        }
+        return found;
     }
 
-     private void showPenaltyEndDialog() {
-        running = false;
-        SwingUtilities.invokeLater(() -> {
-            MatchResult result = new MatchResult(userTeam.name(), scoreTeam1, aiTeam.name(), scoreTeam2, true, penaltyScoreTeam1, penaltyScoreTeam2);
-            matchHistory.addResult(result);
-
-            String line1;
-            java.util.function.Function<Team, String> formatName = t -> {
-                if (t == null) return "Unknown";
-                String name = t.name().toLowerCase();
-                return Character.toUpperCase(name.charAt(0)) + name.substring(1);
-            };
+    public int getQueryResult(int index) {
+        return queryResults[index];
+    }
 
-            if (penaltyScoreTeam1 > penaltyScoreTeam2) {
-                line1 = formatName.apply(userTeam) + " Wins the Shootout! 🏆";
-            } else {
-                line1 = formatName.apply(aiTeam) + " Wins the Shootout!";
-            }
-            String line2 = "Penalty Score: " + penaltyScoreTeam1 + " - " + penaltyScoreTeam2;
+    private int column(double x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor((x - originX) / cellSize)));
+    }
 
-            CustomGameOverDialog dialog = new CustomGameOverDialog(parentFrame, "Shootout Over", line1, line2, onGameEnd);
-            dialog.setVisible(true);
-        });
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - originY) / cellSize)));
     }
+}
 
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
-        Graphics2D g2d = (Graphics2D) g;
-        if (fieldImage != null) {
-            g2d.drawImage(fieldImage, 0, 0, getWidth(), getHeight(), this);
-        }
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        drawGoals(g2d);
+class BatchMatchRunner {
+    private static final long MAX_TICKS_PER_MATCH = 10L * 60 * 60 * MatchSimulation.TICKS_PER_SECOND;
 
-        if (gameState == GameState.PENALTY_SHOOTOUT) {
-             penaltyKicker.draw(g2d);
-             penaltyGoalkeeper.draw(g2d);
-             ball.draw(g2d);
-        } else {
-            if (allPlayers != null) allPlayers.forEach(p -> p.draw(g2d));
-            if (ball != null) ball.draw(g2d);
-        }
-        
-        drawUI(g2d);
+    private final int matches;
+    private final long baseSeed;
+    private final Difficulty difficulty;
+    private final int workers;
 
-        if (paused) {
-            g2d.setColor(new Color(0, 0, 0, 128));
-            g2d.fillRect(0, 0, getWidth(), getHeight());
-        }
-        pauseMenuPanel.setVisible(paused);
+    public BatchMatchRunner(int matches, long baseSeed, Difficulty difficulty, int workers) {
+        this.matches = matches;
+        this.baseSeed = baseSeed;
+        this.difficulty = difficulty;
+        this.workers = Math.max(1, workers);
     }
 
-    private void drawGoals(Graphics2D g2d) {
-        int goalHeight = 100;
-        g2d.setColor(Color.WHITE);
-        g2d.setStroke(new BasicStroke(3));
-        g2d.drawLine(PLAYABLE_X, PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2-10, PLAYABLE_X, PLAYABLE_Y + (PLAYABLE_HEIGHT + goalHeight) / 2-10);
-        g2d.drawLine(PLAYABLE_X + PLAYABLE_WIDTH, PLAYABLE_Y + (PLAYABLE_HEIGHT - goalHeight) / 2-10, PLAYABLE_X + PLAYABLE_WIDTH, PLAYABLE_Y + (PLAYABLE_HEIGHT + goalHeight) / 2-10);
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Difficulty difficulty = args.length > 1 ? Difficulty.valueOf(args[1].toUpperCase()) : Difficulty.MEDIUM;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+        int workers = Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        BatchStats stats = new BatchMatchRunner(matches, seed, difficulty, workers).run();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        System.out.println(stats.report());
+        System.out.printf("%d matches on %d workers in %.2f s (%.0f matches/s)%n", matches, workers, seconds, matches / seconds);
     }
 
-    private void drawUI(Graphics2D g2d) {
-        if (pauseButton != null) {
-            pauseButton.setVisible(gameState != GameState.PENALTY_SHOOTOUT && !paused);
+    public BatchStats run() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<BatchStats>> futures = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                final int worker = w;
+                futures.add(executor.submit(() -> runSlice(worker)));
+            }
+            BatchStats total = new BatchStats();
+            for (Future<BatchStats> future : futures) {
+                total.merge(future.get());
+            }
+            return total;
+        } finally {
+            executor.shutdown();
         }
+    }
 
-        int boxX = 10, boxY = 10, boxWidth = 150, boxHeight = 50, cornerRadius = 10;
-        
-        int totalBoxHeight = boxHeight;
-        if (gameState == GameState.PENALTY_SHOOTOUT) {
-            totalBoxHeight += 25;
+    private BatchStats runSlice(int worker) {
+        BatchStats stats = new BatchStats();
+        for (int i = worker; i < matches; i += workers) {
+            stats.record(playOut(baseSeed + i, difficulty));
         }
+        return stats;
+    }
 
-        g2d.setColor(new Color(0, 0, 128, 220));
-        g2d.fillRoundRect(boxX, boxY, boxWidth, totalBoxHeight, cornerRadius, cornerRadius);
-        g2d.setColor(Color.WHITE);
-        g2d.setStroke(new BasicStroke(2));
-        g2d.drawRoundRect(boxX, boxY, boxWidth, totalBoxHeight, cornerRadius, cornerRadius);
+    static MatchSimulation playOut(long seed, Difficulty difficulty) {
+        MatchSimulation match = new MatchSimulation(seed, false, difficulty);
+        while (!match.isFinished()) {
+            if (match.isShootoutPending()) {
+                match.startPenaltyShootout();
+            }
+            match.tick();
+            if (match.getTickCount() > MAX_TICKS_PER_MATCH) {
+                throw new IllegalStateException("Match with seed " + seed + " did not finish");
+            }
+        }
+        return match;
+    }
+}
 
-        g2d.setColor(Color.WHITE);
-        String userAbbr = (userTeam != null) ? userTeam.getAbbreviation() : "USER";
-        String aiAbbr = (aiTeam != null) ? aiTeam.getAbbreviation() : "AI";
-        String scoreText = String.format("%s %d - %d %s", userAbbr, scoreTeam1, scoreTeam2, aiAbbr);
-        g2d.setFont(new Font("Consolas", Font.BOLD, 20));
-        FontMetrics fmScore = g2d.getFontMetrics();
-        int scoreTextWidth = fmScore.stringWidth(scoreText);
-        g2d.drawString(scoreText, boxX + (boxWidth - scoreTextWidth) / 2, boxY + fmScore.getAscent() + 5);
-        
-        if (gameState == GameState.PENALTY_SHOOTOUT) {
-             String penaltyScoreText = String.format("(%d - %d)", penaltyScoreTeam1, penaltyScoreTeam2);
-             g2d.setFont(new Font("Consolas", Font.PLAIN, 22));
-             FontMetrics fmPenalty = g2d.getFontMetrics();
-             int penaltyTextWidth = fmPenalty.stringWidth(penaltyScoreText);
-             g2d.drawString(penaltyScoreText, boxX + (boxWidth - penaltyTextWidth) / 2, boxY + boxHeight + 10);
+class BatchStats {
+    private int matches;
+    private int leftWins;
+    private int regulationDraws;
+    private int rightWins;
+    private int shootouts;
+    private long goals;
+
+    public void record(MatchSimulation match) {
+        int leftScore = match.getScoreTeam1();
+        int rightScore = match.getScoreTeam2();
+        matches++;
+        goals += leftScore + rightScore;
+        if (leftScore > rightScore) {
+            leftWins++;
+        } else if (rightScore > leftScore) {
+            rightWins++;
         } else {
-             int minutes = Math.max(0, remainingSeconds) / 60;
-             int seconds = Math.max(0, remainingSeconds) % 60;
-             String timeText = String.format("%02d:%02d", minutes, seconds);
-             g2d.setFont(new Font("Consolas", Font.PLAIN, 22));
-             FontMetrics fmTime = g2d.getFontMetrics();
-             int timeTextWidth = fmTime.stringWidth(timeText);
-             g2d.drawString(timeText, boxX + (boxWidth - timeTextWidth) / 2, boxY + boxHeight - 5);
+            regulationDraws++;
+            shootouts++;
         }
-        
-        if (System.currentTimeMillis() - goalMessageStartTime < 3000) {
-            String goalText = "GOAL!!!";
-            g2d.setFont(new Font("Arial", Font.BOLD, 40));
-            FontMetrics fmGoal = g2d.getFontMetrics();
-            int goalTextWidth = fmGoal.stringWidth(goalText);
-            int goalX = (GamePanel.WIDTH - goalTextWidth) / 2;
-            int goalY = GamePanel.HEIGHT / 2;
-            g2d.setColor(Color.YELLOW);
-            g2d.drawString(goalText, goalX, goalY);
+    }
+
+    public void merge(BatchStats other) {
+        matches += other.matches;
+        leftWins += other.leftWins;
+        regulationDraws += other.regulationDraws;
+        rightWins += other.rightWins;
+        shootouts += other.shootouts;
+        goals += other.goals;
+    }
+
+    public String report() {
+        if (matches == 0) {
+            return "No matches simulated.";
         }
-        
-        if (gameState == GameState.PENALTY_SHOOTOUT && penaltyState == PenaltyState.AIMING) {
-            String instructionText;
-            ShotDirection indicatorDirection;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Matches: %d%n", matches));
+        sb.append(String.format("Left side W/D/L: %.1f%% / %.1f%% / %.1f%%%n", percent(leftWins), percent(regulationDraws), percent(rightWins)));
+        sb.append(String.format("Goals per match: %.2f%n", (double) goals / matches));
+        sb.append(String.format("Shootout frequency: %.1f%%%n", percent(shootouts)));
+        return sb.toString().trim();
+    }
 
-            if (isUserTurnToShoot) {
-                instructionText = "AIM: Use ↑ ← → keys. Shoot: SHIFT";
-                indicatorDirection = shotDirection;
-            } else {
-                instructionText = "CHOOSE DIVE: Use ↑ ← → keys.";
-                indicatorDirection = userDiveDirection;
-            }
+    private double percent(int count) {
+        return 100.0 * count / matches;
+    }
+}
 
-            g2d.setFont(new Font("Arial", Font.BOLD, 24));
-            FontMetrics fm = g2d.getFontMetrics();
-            int textWidth = fm.stringWidth(instructionText);
-            g2d.setColor(Color.WHITE);
-            g2d.drawString(instructionText, (WIDTH - textWidth) / 2, HEIGHT - 50);
+class EntityStore {
+    private static final int INITIAL_CAPACITY = 16;
 
-            g2d.setColor(Color.YELLOW);
-            int indicatorX = 0, indicatorY = 0;
-            int goalCenterY = PLAYABLE_Y + PLAYABLE_HEIGHT / 2;
-            int goalPostHeight = 50;
+    int count;
+    double[] x, y, prevX, prevY, velX, velY, dirX, dirY, homeX, homeY;
+    int[] size;
+    byte[] team, role;
+    boolean[] dribbling;
+    long[] possessionStart;
 
-            switch(indicatorDirection){
-                case LEFT: indicatorX = (int) (PLAYABLE_X + PLAYABLE_WIDTH); indicatorY = goalCenterY - goalPostHeight; break;
-                case CENTER: indicatorX = (int) (PLAYABLE_X + PLAYABLE_WIDTH); indicatorY = goalCenterY; break;
-                case RIGHT: indicatorX = (int) (PLAYABLE_X + PLAYABLE_WIDTH); indicatorY = goalCenterY + goalPostHeight; break;
-            }
-            g2d.fillOval(indicatorX-10, indicatorY-10, 20, 20);
+    public EntityStore() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public EntityStore(int capacity) {
+        allocate(Math.max(1, capacity));
+    }
 
-        } else if (penaltyState == PenaltyState.RESULT && !penaltyMessage.isEmpty()) {
-             g2d.setFont(new Font("Arial", Font.BOLD, 60));
-             FontMetrics fm = g2d.getFontMetrics();
-             int textWidth = fm.stringWidth(penaltyMessage);
-             g2d.setColor(penaltyMessage.equals("GOAL!") ? Color.GREEN : Color.RED);
-             g2d.drawString(penaltyMessage, (WIDTH - textWidth) / 2, HEIGHT / 2);
+    public int add(double x, double y, int size, byte team, byte role) {
+        if (count == this.x.length) {
+            allocate(count * 2);
         }
+        int id = count++;
+        this.x[id] = x;
+        this.y[id] = y;
+        this.prevX[id] = x;
+        this.prevY[id] = y;
+        this.size[id] = size;
+        this.team[id] = team;
+        this.role[id] = role;
+        this.dirX[id] = 1;
+        return id;
     }
 
-    private class KeyInputHandler extends KeyAdapter {
-        @Override
-        public void keyPressed(KeyEvent e) {
-            int key = e.getKeyCode();
-            if (gameState == GameState.PENALTY_SHOOTOUT && penaltyState == PenaltyState.AIMING) {
-                if (isUserTurnToShoot) {
-                    if (key == KeyEvent.VK_LEFT) shotDirection = ShotDirection.LEFT;
-                    if (key == KeyEvent.VK_RIGHT) shotDirection = ShotDirection.RIGHT;
-                    if (key == KeyEvent.VK_UP) shotDirection = ShotDirection.CENTER;
-                    if (key == KeyEvent.VK_SHIFT) {
-                        penaltyState = PenaltyState.KICKING;
-                        shootTheBall();
-                        goalkeeperDive(ShotDirection.values()[random.nextInt(3)]);
-                    }
-                } else {
-                    if (key == KeyEvent.VK_LEFT) userDiveDirection = ShotDirection.LEFT;
-                    if (key == KeyEvent.VK_RIGHT) userDiveDirection = ShotDirection.RIGHT;
-                    if (key == KeyEvent.VK_UP) userDiveDirection = ShotDirection.CENTER;
-                }
-                return;
-            }
+    private void allocate(int capacity) {
+        x = grow(x, capacity); y = grow(y, capacity);
+        prevX = grow(prevX, capacity); prevY = grow(prevY, capacity);
+        velX = grow(velX, capacity); velY = grow(velY, capacity);
+        dirX = grow(dirX, capacity); dirY = grow(dirY, capacity);
+        homeX = grow(homeX, capacity); homeY = grow(homeY, capacity);
+        size = size == null ? new int[capacity] : Arrays.copyOf(size, capacity);
+        team = team == null ? new byte[capacity] : Arrays.copyOf(team, capacity);
+        role = role == null ? new byte[capacity] : Arrays.copyOf(role, capacity);
+        dribbling = dribbling == null ? new boolean[capacity] : Arrays.copyOf(dribbling, capacity);
+        possessionStart = possessionStart == null ? new long[capacity] : Arrays.copyOf(possessionStart, capacity);
+    }
+
+    private static double[] grow(double[] values, int capacity) {
+        return values == null ? new double[capacity] : Arrays.copyOf(values, capacity);
+    }
+
+    public void storePreviousPositions() {
+        System.arraycopy(x, 0, prevX, 0, count);
+        System.arraycopy(y, 0, prevY, 0, count);
+    }
 
-            if (team1 == null || paused) return;
-            Player humanPlayer1 = team1.stream().filter(p -> !(p instanceof AIPlayer)).findFirst().orElse(null);
-            if (humanPlayer1 != null) {
-                if (key == KeyEvent.VK_UP) humanPlayer1.setVelY(-USER_SPEED);
-                if (key == KeyEvent.VK_DOWN) humanPlayer1.setVelY(USER_SPEED);
-                if (key == KeyEvent.VK_LEFT) humanPlayer1.setVelX(-USER_SPEED);
-                if (key == KeyEvent.VK_RIGHT) humanPlayer1.setVelX(USER_SPEED);
-                if (key == KeyEvent.VK_SHIFT && humanPlayer1.isDribbling()) humanPlayer1.shoot();
-                if (key == KeyEvent.VK_CONTROL && humanPlayer1.isDribbling()) humanPlayer1.pass();
+    public void integrate(int from, int to, boolean trackDirection) {
+        for (int i = from; i < to; i++) {
+            double vx = velX[i];
+            double vy = velY[i];
+            x[i] += vx;
+            y[i] += vy;
+            if (trackDirection && (Math.abs(vx) > 0.01 || Math.abs(vy) > 0.01)) {
+                double magnitude = Math.sqrt(vx * vx + vy * vy);
+                dirX[i] = vx / magnitude;
+                dirY[i] = vy / magnitude;
             }
         }
+    }
 
-        @Override
-        public void keyReleased(KeyEvent e) {
-            int key = e.getKeyCode();
-            if (gameState == GameState.PENALTY_SHOOTOUT || paused) return;
-            if (team1 == null) return;
-            Player humanPlayer1 = team1.stream().filter(p -> !(p instanceof AIPlayer)).findFirst().orElse(null);
-            if (humanPlayer1 != null) {
-                if (key == KeyEvent.VK_UP || key == KeyEvent.VK_DOWN) humanPlayer1.setVelY(0);
-                if (key == KeyEvent.VK_LEFT || key == KeyEvent.VK_RIGHT) humanPlayer1.setVelX(0);
-            }
+    public void clamp(int from, int to, int minX, int maxX, int minY, int maxY) {
+        for (int i = from; i < to; i++) {
+            x[i] = Math.max(minX, Math.min(x[i], maxX - size[i]));
+            y[i] = Math.max(minY, Math.min(y[i], maxY - size[i]));
         }
     }
 }
 
 abstract class GameObject {
-    protected double x, y, velX, velY;
-    protected int size;
-    public GameObject(double x, double y, int size) { this.x = x; this.y = y; this.size = size; }
-    public abstract void draw(Graphics2D g2d);
-    public Rectangle2D.Double getBounds() { return new Rectangle2D.Double(x, y, size, size); }
-    public void setPosition(double x, double y) { this.x = x; this.y = y; }
-    public double getCenterX() { return x + size / 2.0; }
-    public double getCenterY() { return y + size / 2.0; }
+    protected final EntityStore store;
+    protected final int id;
+    protected final int size;
+    public GameObject(EntityStore store, double x, double y, int size, byte team, byte role) {
+        this.store = store;
+        this.id = store.add(x, y, size, team, role);
+        this.size = size;
+    }
+    protected GameObject(EntityStore store, int id) {
+        this.store = store;
+        this.id = id;
+        this.size = store.size[id];
+    }
+    public void storePreviousPosition() { store.prevX[id] = store.x[id]; store.prevY[id] = store.y[id]; }
+    public double getPrevX() { return store.prevX[id]; }
+    public double getPrevY() { return store.prevY[id]; }
+    public double getRenderX(double alpha) { double prevX = store.prevX[id]; return prevX + (store.x[id] - prevX) * alpha; }
+    public double getRenderY(double alpha) { double prevY = store.prevY[id]; return prevY + (store.y[id] - prevY) * alpha; }
+    public boolean intersects(GameObject other) {
+        double x = getX(), y = getY(), otherX = other.getX(), otherY = other.getY();
+        return x < otherX + other.size && otherX < x + size && y < otherY + other.size && otherY < y + size;
+    }
+    public boolean touchesVerticalSegment(double lineX, double top, double bottom) {
+        double x = getX(), y = getY();
+        return x <= lineX && lineX <= x + size && y <= bottom && top <= y + size;
+    }
+    public double getX() { return store.x[id]; }
+    public double getY() { return store.y[id]; }
+    public void setX(double x) { store.x[id] = x; }
+    public void setY(double y) { store.y[id] = y; }
+    public void setPosition(double x, double y) { store.x[id] = x; store.y[id] = y; }
+    public double getCenterX() { return store.x[id] + size / 2.0; }
+    public double getCenterY() { return store.y[id] + size / 2.0; }
     public double distanceTo(GameObject other) {
         return Math.sqrt(Math.pow(this.getCenterX() - other.getCenterX(), 2) + Math.pow(this.getCenterY() - other.getCenterY(), 2));
     }
-    public void setVelocity(double vx, double vy) { this.velX = vx; this.velY = vy; }
-    public void setVelX(double velX) { this.velX = velX; }
-    public void setVelY(double velY) { this.velY = velY; }
+    public double getVelX() { return store.velX[id]; }
+    public double getVelY() { return store.velY[id]; }
+    public void setVelocity(double vx, double vy) { store.velX[id] = vx; store.velY[id] = vy; }
+    public void setVelX(double velX) { store.velX[id] = velX; }
+    public void setVelY(double velY) { store.velY[id] = velY; }
 }
 
 class Ball extends GameObject {
-    private static final double FRICTION = 0.985;
+    static final double FRICTION = 0.985;
+    private static final byte NO_TEAM = -1;
     private Player dribbler;
-    private final BufferedImage sprite;
+    private SpriteSheet sprite;
     private double rotationAngle = 0;
-    public Ball(double x, double y, int size, BufferedImage sprite) { super(x, y, size); this.sprite = sprite; }
+    public Ball(double x, double y, int size, SpriteSheet sprite) { this(new EntityStore(1), x, y, size, sprite); }
+    public Ball(EntityStore store, double x, double y, int size, SpriteSheet sprite) { super(store, x, y, size, NO_TEAM, NO_TEAM); this.sprite = sprite; }
     public void move() {
         if (dribbler == null) {
-            x += velX;
-            y += velY;
-            velX *= FRICTION;
-            velY *= FRICTION;
-            rotationAngle += Math.sqrt(velX * velX + velY * velY) * 0.1;
+            double[] velX = store.velX, velY = store.velY;
+            store.x[id] += velX[id];
+            store.y[id] += velY[id];
+            velX[id] *= FRICTION;
+            velY[id] *= FRICTION;
+            rotationAngle += Math.sqrt(velX[id] * velX[id] + velY[id] * velY[id]) * 0.1;
         }
     }
     public void checkWallCollision(int minX, int maxX, int minY, int maxY) {
-        if (x <= minX || x >= maxX - size) { velX *= -1; x = Math.max(minX, Math.min(x, maxX - size)); }
-        if (y <= minY || y >= maxY - size) { velY *= -1; y = Math.max(minY, Math.min(y, maxY - size)); }
+        double x = store.x[id], y = store.y[id];
+        if (x <= minX || x >= maxX - size) { store.velX[id] *= -1; store.x[id] = Math.max(minX, Math.min(x, maxX - size)); }
+        if (y <= minY || y >= maxY - size) { store.velY[id] *= -1; store.y[id] = Math.max(minY, Math.min(y, maxY - size)); }
     }
     
     public Player getDribbler() { return dribbler; }
     public void setDribbler(Player dribbler) { this.dribbler = dribbler; }
-    @Override
-    public void draw(Graphics2D g2d) {
-        if (sprite != null) {
-            AffineTransform old = g2d.getTransform();
-            g2d.translate(getCenterX(), getCenterY());
-            g2d.rotate(rotationAngle);
-            g2d.drawImage(sprite, -size/2, -size/2, size, size, null);
-            g2d.setTransform(old);
-        } else {
-            g2d.setColor(Color.WHITE);
-            g2d.fill(new Ellipse2D.Double(x, y, size, size));
-        }
-    }
+    public void setSprite(SpriteSheet sprite) { this.sprite = sprite; }
+    public SpriteSheet getSprite() { return sprite; }
+    public double getRotationAngle() { return rotationAngle; }
 }
 
 class Player extends GameObject {
     public enum PlayerRole { GOALKEEPER, DEFENDER, MIDFIELDER, STRIKER }
-    protected String team;
-    protected PlayerRole role;
-    protected GamePanel gamePanel;
-    protected boolean isDribbling = false;
-    protected double lastDirX = 1;
-    protected double lastDirY = 0;
-    protected long possessionStartTime = 0;
-    protected BufferedImage sprite;
+    private static final PlayerRole[] ROLES = PlayerRole.values();
+    private static final String[] TEAM_NAMES = { "Team 1", "Team 2" };
+    private static final double SHOT_SPREAD = 35;
+    private static final double PASS_SPREAD = 10;
+    protected final MatchSimulation match;
+    protected SpriteSheet sprite;
     protected final Color fallbackColor;
-    public Player(double x, double y, int size, BufferedImage sprite, Color fallbackColor, String team, PlayerRole role, GamePanel gamePanel) {
-        super(x, y, size);
+    private PlayerController controller;
+    public Player(double x, double y, int size, SpriteSheet sprite, Color fallbackColor, String team, PlayerRole role, MatchSimulation match) {
+        super(match.getEntityStore(), x, y, size, teamIndexOf(team), (byte) role.ordinal());
         this.sprite = sprite;
         this.fallbackColor = fallbackColor;
-        this.team = team; this.role = role; this.gamePanel = gamePanel;
-        this.lastDirX = team.equals("Team 1") ? 1 : -1;
-    }
-    public Player(AIPlayer other) {
-        super(other.x, other.y, other.size);
-        this.sprite = other.sprite;
-        this.fallbackColor = other.fallbackColor;
-        this.team = other.team;
-        this.role = other.role;
-        this.gamePanel = other.gamePanel;
-        this.velX = other.velX;
-        this.velY = other.velY;
-        this.isDribbling = other.isDribbling;
-        this.lastDirX = other.lastDirX;
-        this.lastDirY = other.lastDirY;
-        this.possessionStartTime = other.possessionStartTime;
+        this.match = match;
+        this.controller = match.getAIController();
+        store.dirX[id] = team.equals("Team 1") ? 1 : -1;
+    }
+
+    static byte teamIndexOf(String team) {
+        return (byte) (team.equals("Team 1") ? 0 : 1);
     }
+
+    public void think() {
+        controller.think(this);
+    }
+
     public void move() {
-        x += velX;
-        y += velY;
-
-        if (gamePanel.getGameState() != GamePanel.GameState.PENALTY_SHOOTOUT) {
-             if (Math.abs(velX) > 0.01 || Math.abs(velY) > 0.01) {
-                 double magnitude = Math.sqrt(velX * velX + velY * velY);
-                 if (magnitude > 0) {
-                     lastDirX = velX / magnitude;
-                     lastDirY = velY / magnitude;
-                 }
-             }
-        }
-        
-        if (isDribbling) {
-            Ball ball = gamePanel.getBall();
-            double ballOffset = this.size * 0.6;
-            double ballX = this.getCenterX() + lastDirX * ballOffset - ball.size / 2.0;
-            double ballY = this.getCenterY() + lastDirY * ballOffset - ball.size / 2.0;
-            ball.setPosition(ballX, ballY);
-            ball.setVelocity(0, 0);
+        think();
+        store.integrate(id, id + 1, match.getGameState() != MatchSimulation.GameState.PENALTY_SHOOTOUT);
+        if (isDribbling()) {
+            carryBall();
         }
     }
+
+    void carryBall() {
+        Ball ball = match.getBall();
+        double ballOffset = this.size * 0.6;
+        double ballX = this.getCenterX() + store.dirX[id] * ballOffset - ball.size / 2.0;
+        double ballY = this.getCenterY() + store.dirY[id] * ballOffset - ball.size / 2.0;
+        ball.setPosition(ballX, ballY);
+        ball.setVelocity(0, 0);
+    }
     
     public void checkCollisions(Ball ball, List<Player> allPlayers) {
-        checkWallCollision(GamePanel.PLAYABLE_X, GamePanel.PLAYABLE_X + GamePanel.PLAYABLE_WIDTH, GamePanel.PLAYABLE_Y, GamePanel.PLAYABLE_Y + GamePanel.PLAYABLE_HEIGHT);
-        for (Player other : allPlayers) {
-            if (this != other && this.getBounds().intersects(other.getBounds())) {
+        checkWallCollision(MatchSimulation.PLAYABLE_X, MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH, MatchSimulation.PLAYABLE_Y, MatchSimulation.PLAYABLE_Y + MatchSimulation.PLAYABLE_HEIGHT);
+        for (int i = 0; i < allPlayers.size(); i++) {
+            Player other = allPlayers.get(i);
+            if (this != other && this.intersects(other)) {
                 resolvePlayerCollision(other);
             }
         }
-        if (isDribbling) {
-            for (Player other : allPlayers) {
-                if (other != this && !other.getTeam().equals(this.team) && this.getBounds().intersects(other.getBounds())) {
-                    double dx = other.getCenterX() - this.getCenterX();
-                    double dirX = (lastDirX >= 0) ? 1 : -1;
-                    if ((dx > 0 && dirX > 0) || (dx < 0 && dirX < 0)) {
-                        this.losePossession(ball);
-                        other.kick(ball, 2.0);
-                        break;
-                    }
-                }
-            }
-        } else if (ball.getDribbler() == null && this.getBounds().intersects(ball.getBounds())) {
-            ball.setDribbler(this);
-            this.isDribbling = true;
-            this.possessionStartTime = System.currentTimeMillis();
-            
-            if (gamePanel.getGameState() == GamePanel.GameState.RUNNING) {
-                if (this instanceof AIPlayer && this.team.equals("Team 1")) {
-                    gamePanel.switchControlToPlayer(this);
+        if (isDribbling()) {
+            for (int i = 0; i < allPlayers.size(); i++) {
+                Player other = allPlayers.get(i);
+                if (canBeTackledBy(other)) {
+                    this.losePossession(ball);
+                    other.kick(ball, 2.0);
+                    break;
                 }
             }
+        } else if (ball.getDribbler() == null && this.intersects(ball)) {
+            takePossession(ball);
         }
     }
-    
-    private void resolvePlayerCollision(Player other) {
+
+    boolean canBeTackledBy(Player other) {
+        if (other == this || other.getTeamIndex() == this.getTeamIndex() || !this.intersects(other)) {
+            return false;
+        }
+        double dx = other.getCenterX() - this.getCenterX();
+        double dirX = (store.dirX[id] >= 0) ? 1 : -1;
+        return (dx > 0 && dirX > 0) || (dx < 0 && dirX < 0);
+    }
+
+    void takePossession(Ball ball) {
+        ball.setDribbler(this);
+        setDribbling(true);
+        store.possessionStart[id] = match.getTimeMillis();
+
+        if (match.getGameState() == MatchSimulation.GameState.RUNNING && !isHumanControlled()) {
+            match.switchControlToPlayer(this);
+        }
+    }
+
+    void resolvePlayerCollision(Player other) {
         double dx = this.getCenterX() - other.getCenterX();
         double dy = this.getCenterY() - other.getCenterY();
         double distance = Math.sqrt(dx * dx + dy * dy);
@@ -1771,8 +4862,8 @@ class Player extends GameObject {
         if (overlap > 0) {
             double resolveX = (distance == 0) ? overlap : (dx / distance) * overlap;
             double resolveY = (distance == 0) ? 0 : (dy / distance) * overlap;
-            this.x += resolveX / 2.0; this.y += resolveY / 2.0;
-            other.x -= resolveX / 2.0; other.y -= resolveY / 2.0;
+            store.x[id] += resolveX / 2.0; store.y[id] += resolveY / 2.0;
+            store.x[other.id] -= resolveX / 2.0; store.y[other.id] -= resolveY / 2.0;
         }
     }
     public void kick(Ball ball, double strength) {
@@ -1783,244 +4874,403 @@ class Player extends GameObject {
         if (mag == 0) return;
         ball.setVelocity((dirX / mag) * strength, (dirY / mag) * strength);
     }
-    public void losePossession(Ball ball) { this.isDribbling = false; this.possessionStartTime = 0; ball.setDribbler(null); }
+    public void losePossession(Ball ball) { setDribbling(false); store.possessionStart[id] = 0; ball.setDribbler(null); }
     
     public void shoot() {
-        if (!isDribbling) return;
-        gamePanel.getSoundPlayer().playShootSound();
-        if (gamePanel.getGameState() == GamePanel.GameState.KICK_OFF) {
-            gamePanel.transitionToRunningState();
+        if (!isDribbling()) return;
+        match.handleShot();
+        if (match.getGameState() == MatchSimulation.GameState.KICK_OFF) {
+            match.transitionToRunningState();
         }
-        Ball ball = gamePanel.getBall();
+        Ball ball = match.getBall();
         losePossession(ball);
-        double targetX = team.equals("Team 1") ? GamePanel.PLAYABLE_X + GamePanel.PLAYABLE_WIDTH : GamePanel.PLAYABLE_X;
-        double targetY = GamePanel.PLAYABLE_Y + GamePanel.PLAYABLE_HEIGHT / 2.0;
+        double targetX = getTeamIndex() == 0 ? MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH : MatchSimulation.PLAYABLE_X;
+        double targetY = MatchSimulation.PLAYABLE_Y + MatchSimulation.PLAYABLE_HEIGHT / 2.0;
+        if (!isHumanControlled()) {
+            targetY += match.jitter(SHOT_SPREAD);
+        }
         kickInDirection(ball, targetX - ball.getCenterX(), targetY - ball.getCenterY(), 13.0);
     }
     
     public void pass() {
-        if (!isDribbling) return;
-        gamePanel.handlePass(this.team);
-        if (gamePanel.getGameState() == GamePanel.GameState.KICK_OFF) {
-            gamePanel.transitionToRunningState();
+        if (!isDribbling()) return;
+        match.handlePass(getTeam());
+        if (match.getGameState() == MatchSimulation.GameState.KICK_OFF) {
+            match.transitionToRunningState();
         }
-        Ball ball = gamePanel.getBall();
+        Ball ball = match.getBall();
         losePossession(ball);
 
-        final double forwardVecX = this.lastDirX;
-        final double forwardVecY = this.lastDirY;
-
-        Player bestTeammate = gamePanel.getTeam(this.team).stream()
-            .filter(p -> p != this && p.getRole() != PlayerRole.GOALKEEPER)
-            .filter(teammate -> {
-                double toTeammateVecX = teammate.getCenterX() - this.getCenterX();
-                double toTeammateVecY = teammate.getCenterY() - this.getCenterY();
-                double dotProduct = (forwardVecX * toTeammateVecX) + (forwardVecY * toTeammateVecY);
-                return dotProduct > 0;
-            })
-            .min(Comparator.comparingDouble(p -> p.distanceTo(this)))
-            .orElse(null);
-
-        if (bestTeammate != null) {
-            kickInDirection(ball, bestTeammate.getCenterX() - ball.getCenterX(), bestTeammate.getCenterY() - ball.getCenterY(), 9.0);
+        List<Player> players = match.getAllPlayers();
+        Difficulty difficulty = match.getDifficulty();
+        double opponentSpeed = Math.max(difficulty.getUserSpeed(), difficulty.getAiBaseSpeed());
+        int receiver = match.getPassEvaluator().findReceiver(id, ball.getCenterX(), ball.getCenterY(), players.size(), opponentSpeed);
+
+        if (receiver >= 0) {
+            Player bestTeammate = players.get(receiver);
+            double spread = isHumanControlled() ? 0 : PASS_SPREAD;
+            kickInDirection(ball, bestTeammate.getCenterX() - ball.getCenterX(), bestTeammate.getCenterY() + match.jitter(spread) - ball.getCenterY(), PassEvaluator.PASS_SPEED);
         } else {
-            kickInDirection(ball, forwardVecX, forwardVecY, 4.5);
+            kickInDirection(ball, store.dirX[id], store.dirY[id], 4.5);
         }
     }
     public void checkWallCollision(int minX, int maxX, int minY, int maxY) {
-        x = Math.max(minX, Math.min(x, maxX - size));
-        y = Math.max(minY, Math.min(y, maxY - size));
+        store.clamp(id, id + 1, minX, maxX, minY, maxY);
     }
 
     public void setDirection(double dirX, double dirY) {
-        this.lastDirX = dirX;
-        this.lastDirY = dirY;
+        store.dirX[id] = dirX;
+        store.dirY[id] = dirY;
     }
     
-    public void setSprite(BufferedImage newSprite) {
+    public void setSprite(SpriteSheet newSprite) {
         if (newSprite != null) {
             this.sprite = newSprite;
         }
     }
 
-    public PlayerRole getRole() { return role; }
-    public String getTeam() { return team; }
-    public boolean isDribbling() { return isDribbling; }
-    
+    MatchSimulation getMatch() { return match; }
+    PlayerController getController() { return controller; }
+    void setController(PlayerController controller) { this.controller = controller; }
+    public boolean isHumanControlled() { return controller.isHuman(); }
+    public double getHomeX() { return store.homeX[id]; }
+    public double getHomeY() { return store.homeY[id]; }
+    public void setHomePosition(double hx, double hy) { store.homeX[id] = hx; store.homeY[id] = hy; }
+    public SpriteSheet getSprite() { return sprite; }
+    public Color getFallbackColor() { return fallbackColor; }
+    public double getDirX() { return store.dirX[id]; }
+    public double getDirY() { return store.dirY[id]; }
+    public PlayerRole getRole() { return ROLES[store.role[id]]; }
+    public int getTeamIndex() { return store.team[id]; }
+    public String getTeam() { return TEAM_NAMES[store.team[id]]; }
+    public boolean isDribbling() { return store.dribbling[id]; }
+    public void setDribbling(boolean dribbling) { store.dribbling[id] = dribbling; }
+    public long getPossessionStartTime() { return store.possessionStart[id]; }
+    public void setPossessionStartTime(long time) { store.possessionStart[id] = time; }
+}
+
+interface PlayerController {
+    void think(Player player);
+
+    default boolean isHuman() {
+        return false;
+    }
+}
+
+class HumanController implements PlayerController {
+    private final AtomicBoolean shotRequested = new AtomicBoolean();
+    private final AtomicBoolean passRequested = new AtomicBoolean();
+    private Player player;
+
     @Override
-    public void draw(Graphics2D g2d) {
-        if (!(this instanceof AIPlayer) && this.team.equals("Team 1") && gamePanel.getGameState() != GamePanel.GameState.PENALTY_SHOOTOUT) {
-            g2d.setColor(Color.YELLOW);
-            g2d.fillOval((int)getCenterX() - 5, (int)y + size + 2, 10, 10);
+    public void think(Player player) {
+        boolean shoot = shotRequested.getAndSet(false);
+        boolean pass = passRequested.getAndSet(false);
+        if (!player.isDribbling()) return;
+        if (shoot) {
+            player.shoot();
+        } else if (pass) {
+            player.pass();
         }
+    }
 
-        if (sprite != null) {
-            AffineTransform oldTransform = g2d.getTransform();
-            g2d.translate(getCenterX(), getCenterY());
+    void requestShot() {
+        shotRequested.set(true);
+    }
 
-            boolean shouldRotate = (gamePanel.getGameState() != GamePanel.GameState.PENALTY_SHOOTOUT) || (this.getRole() == PlayerRole.GOALKEEPER);
+    void requestPass() {
+        passRequested.set(true);
+    }
 
-            if (shouldRotate) {
-                if (this.getRole() != PlayerRole.GOALKEEPER) {
-                    double angle = Math.atan2(lastDirY, lastDirX);
-                    g2d.rotate(angle);
-                    if (Math.abs(angle) > Math.PI / 2) {
-                        g2d.scale(1, -1);
-                    }
-                } else {
-                    if (this.team.equals("Team 2")) {
-                        g2d.scale(-1, 1);
-                    }
-                }
-            }
+    @Override
+    public boolean isHuman() {
+        return true;
+    }
 
-            g2d.drawImage(sprite, -size / 2, -size / 2, size, size, null);
-            g2d.setTransform(oldTransform);
+    void attachTo(Player player) {
+        this.player = player;
+        shotRequested.set(false);
+        passRequested.set(false);
+    }
 
-        } else {
-            g2d.setColor(fallbackColor);
-            g2d.fill(new Ellipse2D.Double(x, y, size, size));
-            g2d.setColor(Color.BLACK);
-            g2d.draw(new Ellipse2D.Double(x, y, size, size));
-        }
+    public Player getPlayer() {
+        return player;
     }
 }
 
-class AIPlayer extends Player {
-    private double homeX, homeY;
-    public AIPlayer(double x, double y, int size, BufferedImage sprite, Color fallbackColor, String team, PlayerRole role, GamePanel gamePanel) {
-        super(x, y, size, sprite, fallbackColor, team, role, gamePanel);
-    }
-    public AIPlayer(Player other, double homeX, double homeY) {
-        super(other.x, other.y, other.size, other.sprite, other.fallbackColor, other.team, other.role, other.gamePanel);
-        this.velX = other.velX;
-        this.velY = other.velY;
-        this.isDribbling = other.isDribbling;
-        this.lastDirX = other.lastDirX;
-        this.lastDirY = other.lastDirY;
-        this.possessionStartTime = other.possessionStartTime;
-        this.homeX = homeX;
-        this.homeY = homeY;
-    }
-    public double getHomeX() { return homeX; }
-    public double getHomeY() { return homeY; }
-    public void setHomePosition(double hx, double hy) { this.homeX = hx; this.homeY = hy; }
-    
+class AIController implements PlayerController {
+    static final int DEFAULT_THINK_HZ = 12;
+    private static final double PRESSURE_DISTANCE = 60;
+    private static final double SAFE_PASS_TICKS = 8;
+    private static final int SEARCH_RADIUS = 2;
+    private static final int MAX_MISREAD_TICKS = 60;
+    private static final byte UNDECIDED = 0;
+    private static final byte HOLD = 1;
+    private static final byte POINT = 2;
+    private static final byte BALL = 3;
+    private static final byte BALL_LINE = 4;
+    private static final byte CARRIER = 5;
+
+    private final int buckets;
+    private final Random random;
+    private int[] thinkPhase = new int[0];
+    private byte[] targetKind = new byte[0];
+    private double[] targetX = new double[0];
+    private double[] targetY = new double[0];
+    private double[] targetSpeed = new double[0];
+    private double[] misreadX = new double[0];
+    private double[] misreadY = new double[0];
+    private long tick;
+    private long lastKickTick;
+    private boolean urgent;
+    private boolean interruptPending;
+    private int lastPossessionOwner = -1;
+
+    AIController(long seed) {
+        this(Integer.getInteger("soccer.aiThinkHz", DEFAULT_THINK_HZ), seed);
+    }
+
+    AIController(int thinkHz, long seed) {
+        this.buckets = Math.max(1, MatchSimulation.TICKS_PER_SECOND / Math.max(1, thinkHz));
+        this.random = new Random(seed);
+    }
+
+    void beginTick(long tick, WorldQuery world) {
+        this.tick = tick;
+        int owner = world.getPossessionOwner();
+        urgent = interruptPending || owner != lastPossessionOwner;
+        if (urgent && owner < 0) {
+            lastKickTick = tick;
+        }
+        interruptPending = false;
+        lastPossessionOwner = owner;
+    }
+
+    void interrupt() {
+        interruptPending = true;
+    }
+
+    void forget(Player player) {
+        if (player.id < targetKind.length) {
+            targetKind[player.id] = UNDECIDED;
+        }
+    }
+
+    void forgetAll() {
+        Arrays.fill(targetKind, UNDECIDED);
+    }
+
     @Override 
-    public void move() {
-        if (gamePanel.getGameState() == GamePanel.GameState.PENALTY_SHOOTOUT) {
-        } else if (gamePanel.getGameState() == GamePanel.GameState.RUNNING) {
-            decideAction();
-        } else if (gamePanel.getGameState() == GamePanel.GameState.KICK_OFF) {
-            if (this.isDribbling) {
-                this.velX = 0;
-                this.velY = 0;
-                if (System.currentTimeMillis() - this.possessionStartTime > 3000) {
-                    this.pass();
+    public void think(Player player) {
+        MatchSimulation match = player.getMatch();
+        if (match.getGameState() == MatchSimulation.GameState.PENALTY_SHOOTOUT) {
+        } else if (match.getGameState() == MatchSimulation.GameState.RUNNING) {
+            ensureCapacity(player.id);
+            if (urgent || player.isDribbling() || targetKind[player.id] == UNDECIDED || (tick + thinkPhase[player.id]) % buckets == 0) {
+                decideAction(player);
+            }
+            steer(player, match.getWorldQuery());
+        } else if (match.getGameState() == MatchSimulation.GameState.KICK_OFF) {
+            if (player.isDribbling()) {
+                player.setVelocity(0, 0);
+                if (match.getTimeMillis() - player.getPossessionStartTime() > 3000) {
+                    player.pass();
                 }
             } else {
-                velX = 0;
-                velY = 0;
+                player.setVelocity(0, 0);
             }
         }
         else {
-            velX = 0;
-            velY = 0;
+            player.setVelocity(0, 0);
         }
-        super.move();
     }
     
-    private void decideAction() {
-        if (this.isDribbling()) {
-            decideWithBall();
+    void decideAction(Player player) {
+        ensureCapacity(player.id);
+        MatchSimulation match = player.getMatch();
+        WorldQuery world = match.getWorldQuery();
+        if (player.isDribbling()) {
+            decideWithBall(player, world);
         } else {
-            Ball ball = gamePanel.getBall();
-            Player dribbler = ball.getDribbler();
-            boolean myTeamHasBall = dribbler != null && dribbler.getTeam().equals(this.team);
+            int owner = world.getPossessionOwner();
+            Player dribbler = owner < 0 ? null : match.getAllPlayers().get(owner);
+            boolean myTeamHasBall = dribbler != null && dribbler.getTeamIndex() == player.getTeamIndex();
             if (myTeamHasBall) {
-                behaveOffensively(dribbler);
+                behaveOffensively(player, dribbler);
             } else {
-                behaveDefensively();
+                behaveDefensively(player, world);
             }
         }
     }
 
-    private void decideWithBall() {
-        if (this.getRole() == PlayerRole.GOALKEEPER) {
-            if (System.currentTimeMillis() - this.possessionStartTime > 250) {
-                this.pass();
+    private void decideWithBall(Player player, WorldQuery world) {
+        MatchSimulation match = player.getMatch();
+        if (player.getRole() == Player.PlayerRole.GOALKEEPER) {
+            if (match.getTimeMillis() - player.getPossessionStartTime() > 250) {
+                player.pass();
             } else {
-                this.velX = 0;
-                this.velY = 0;
+                setTarget(player, HOLD, 0, 0, 0);
             }
             return;
         }
 
-        boolean timeUp = System.currentTimeMillis() - this.possessionStartTime > 3000;
-        double goalX = team.equals("Team 1") ? GamePanel.PLAYABLE_X + GamePanel.PLAYABLE_WIDTH : GamePanel.PLAYABLE_X;
-        double distanceToGoal = Math.abs(this.getCenterX() - goalX);
+        Player.PlayerRole role = player.getRole();
+        boolean timeUp = match.getTimeMillis() - player.getPossessionStartTime() > 3000;
+        double goalX = player.getTeamIndex() == 0 ? MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH : MatchSimulation.PLAYABLE_X;
+        double distanceToGoal = world.getGoalDistance(player.id);
 
         if (timeUp) {
-            if (distanceToGoal < 500 && role != PlayerRole.DEFENDER) {
-                this.shoot();
+            if (distanceToGoal < 500 && role != Player.PlayerRole.DEFENDER) {
+                player.shoot();
             } else {
-                this.pass();
+                player.pass();
             }
             return;
         }
 
-        if (distanceToGoal < 400 && role != PlayerRole.DEFENDER) {
-            this.shoot();
+        if (distanceToGoal < 400 && role != Player.PlayerRole.DEFENDER) {
+            player.shoot();
+        } else if (shouldRelievePressure(player, match)) {
+            player.pass();
         } else {
-            moveTo(goalX, this.getCenterY(), GamePanel.AI_BASE_SPEED);
+            setTarget(player, POINT, goalX, player.getCenterY(), match.getDifficulty().getAiBaseSpeed());
         }
     }
 
-    private void behaveOffensively(Player ballCarrier) {
+    private boolean shouldRelievePressure(Player player, MatchSimulation match) {
+        if ((tick + thinkPhase[player.id]) % buckets != 0) return false;
+        List<Player> players = match.getAllPlayers();
+        PassEvaluator passes = match.getPassEvaluator();
+        if (passes.nearestOpponentDistance(player.id, players.size()) > PRESSURE_DISTANCE) return false;
+        Ball ball = match.getBall();
+        Difficulty difficulty = match.getDifficulty();
+        double opponentSpeed = Math.max(difficulty.getUserSpeed(), difficulty.getAiBaseSpeed());
+        return passes.findReceiver(player.id, ball.getCenterX(), ball.getCenterY(), players.size(), opponentSpeed, SAFE_PASS_TICKS) >= 0;
+    }
+
+    private void behaveOffensively(Player player, Player ballCarrier) {
+        byte kind = POINT;
         double targetX, targetY;
-        double halfWayLine = GamePanel.PLAYABLE_X + GamePanel.PLAYABLE_WIDTH / 2.0;
-        switch (role) {
+        double halfWayLine = MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH / 2.0;
+        boolean firstTeam = player.getTeamIndex() == 0;
+        switch (player.getRole()) {
             case STRIKER:
-                targetX = (team.equals("Team 1")) ? GamePanel.PLAYABLE_X + GamePanel.PLAYABLE_WIDTH - 150 : GamePanel.PLAYABLE_X + 150;
-                targetY = this.homeY;
+                targetX = firstTeam ? MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH - 150 : MatchSimulation.PLAYABLE_X + 150;
+                targetY = player.getHomeY();
                 break;
             case MIDFIELDER:
-                targetX = ballCarrier.getCenterX() + (team.equals("Team 1") ? 150 : -150);
-                targetY = this.homeY;
+                kind = CARRIER;
+                targetX = firstTeam ? 150 : -150;
+                targetY = player.getHomeY();
                 break;
             case DEFENDER:
-                targetX = halfWayLine + (team.equals("Team 1") ? 50 : -50);
-                targetY = this.y;
+                targetX = halfWayLine + (firstTeam ? 50 : -50);
+                targetY = player.getY();
                 break;
             default:
-                targetX = homeX;
-                targetY = homeY;
+                targetX = player.getHomeX();
+                targetY = player.getHomeY();
                 break;
         }
-        moveTo(targetX, targetY, GamePanel.AI_BASE_SPEED * 0.8);
+        if (player.getRole() == Player.PlayerRole.STRIKER || player.getRole() == Player.PlayerRole.MIDFIELDER) {
+            PitchControl pitch = player.getMatch().getPitchControl();
+            double anchorX = kind == CARRIER ? ballCarrier.getCenterX() + targetX : targetX;
+            pitch.search(player.getTeamIndex(), anchorX, targetY, SEARCH_RADIUS, true);
+            targetX += pitch.getFoundX() - anchorX;
+            targetY = pitch.getFoundY();
+        }
+        setTarget(player, kind, targetX, targetY, player.getMatch().getDifficulty().getAiBaseSpeed() * 0.8);
     }
     
-    private void behaveDefensively() {
-        Ball ball = gamePanel.getBall();
-        if (role == PlayerRole.GOALKEEPER) {
-            moveTo(homeX, ball.getCenterY(), GamePanel.AI_BASE_SPEED * 1.5);
+    private void behaveDefensively(Player player, WorldQuery world) {
+        MatchSimulation match = player.getMatch();
+        if (player.getRole() == Player.PlayerRole.GOALKEEPER) {
+            setTarget(player, BALL_LINE, player.getHomeX(), 0, match.getDifficulty().getAiBaseSpeed() * 1.5);
             return;
         }
-        
-        Player closestToBall = gamePanel.getTeam(this.team).stream()
-                .filter(p -> p.getRole() != PlayerRole.GOALKEEPER)
-                .min(Comparator.comparingDouble(p -> p.distanceTo(ball))).orElse(this);
-        if (this == closestToBall) {
-            moveTo(ball.getCenterX(), ball.getCenterY(), GamePanel.AI_BASE_SPEED);
+
+        int closestToBall = world.getClosestToBall(player.getTeamIndex());
+        if (closestToBall < 0 || closestToBall == player.id) {
+            setTarget(player, BALL, 0, 0, match.getDifficulty().getAiBaseSpeed());
         } else {
-            moveTo(homeX, homeY, GamePanel.AI_BASE_SPEED * 0.9);
+            PitchControl pitch = match.getPitchControl();
+            pitch.search(player.getTeamIndex(), player.getHomeX(), player.getHomeY(), SEARCH_RADIUS, false);
+            setTarget(player, POINT, pitch.getFoundX(), pitch.getFoundY(), match.getDifficulty().getAiBaseSpeed() * 0.9);
+        }
+    }
+
+    private void setTarget(Player player, byte kind, double x, double y, double speed) {
+        if ((kind == BALL || kind == BALL_LINE) && (urgent || targetKind[player.id] != kind)) {
+            misreadX[player.id] = random.nextGaussian();
+            misreadY[player.id] = random.nextGaussian();
+        }
+        targetKind[player.id] = kind;
+        targetX[player.id] = x;
+        targetY[player.id] = y;
+        targetSpeed[player.id] = speed;
+    }
+
+    private void steer(Player player, WorldQuery world) {
+        int id = player.id;
+        double speed = targetSpeed[id];
+        switch (targetKind[id]) {
+            case POINT:
+                moveTo(player, targetX[id], targetY[id], speed);
+                break;
+            case BALL:
+                if (reacting(player)) {
+                    moveTo(player, world.getBallCenterX(), world.getBallCenterY(), speed);
+                    break;
+                }
+                BallPredictor predictor = world.getBallPredictor();
+                predictor.intercept(player.getCenterX(), player.getCenterY(), speed, (player.size + MatchSimulation.BALL_SIZE) / 2.0);
+                double error = misread(player, predictor.getInterceptTick());
+                moveTo(player, predictor.getInterceptX() + misreadX[id] * error, predictor.getInterceptY() + misreadY[id] * error, speed);
+                break;
+            case BALL_LINE:
+                double arrival = reacting(player) ? -1 : world.getBallPredictor().ticksToReachX(player.getCenterX());
+                double lineY = arrival < 0 ? world.getBallCenterY() : world.getBallPredictor().centerY(arrival) + misreadY[id] * misread(player, arrival);
+                moveTo(player, targetX[id], lineY, speed);
+                break;
+            case CARRIER:
+                int owner = world.getPossessionOwner();
+                double carrierX = owner < 0 ? player.getCenterX() - targetX[id] : player.getMatch().getAllPlayers().get(owner).getCenterX();
+                moveTo(player, carrierX + targetX[id], targetY[id], speed);
+                break;
+            default:
+                player.setVelocity(0, 0);
+                break;
         }
     }
 
-    private void moveTo(double targetX, double targetY, double speed) {
-        double dx = targetX - this.getCenterX(); double dy = targetY - this.getCenterY();
+    private boolean reacting(Player player) {
+        return tick - lastKickTick < player.getMatch().getDifficulty().getAiReactionTicks();
+    }
+
+    private double misread(Player player, double ticks) {
+        return player.getMatch().getDifficulty().getAiReadError() * Math.min(ticks, MAX_MISREAD_TICKS);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id < targetKind.length) return;
+        int capacity = Math.max(16, Integer.highestOneBit(id) * 2);
+        int previous = thinkPhase.length;
+        thinkPhase = Arrays.copyOf(thinkPhase, capacity);
+        for (int i = previous; i < capacity; i++) {
+            thinkPhase[i] = random.nextInt(buckets);
+        }
+        targetKind = Arrays.copyOf(targetKind, capacity);
+        targetX = Arrays.copyOf(targetX, capacity);
+        targetY = Arrays.copyOf(targetY, capacity);
+        targetSpeed = Arrays.copyOf(targetSpeed, capacity);
+        misreadX = Arrays.copyOf(misreadX, capacity);
+        misreadY = Arrays.copyOf(misreadY, capacity);
+    }
+
+    private void moveTo(Player player, double targetX, double targetY, double speed) {
+        double dx = targetX - player.getCenterX(); double dy = targetY - player.getCenterY();
         double distance = Math.sqrt(dx * dx + dy * dy);
-        if (distance > 1) { velX = (dx / distance) * speed; velY = (dy / distance) * speed; }
-        else { velX = 0; velY = 0; }
+        if (distance > 1) { player.setVelocity((dx / distance) * speed, (dy / distance) * speed); }
+        else { player.setVelocity(0, 0); }
     }
-}
\ No newline at end of file
+}
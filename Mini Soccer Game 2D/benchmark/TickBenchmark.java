@@ -0,0 +1,204 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+@SuppressWarnings("auxiliaryclass")
+public class TickBenchmark {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+    private static final int BATCH_SIZE = 256;
+
+    private static volatile double sink;
+
+    interface Operation {
+        void run();
+
+        default void prepare() {
+        }
+    }
+
+    private static final class Case {
+        final String name;
+        final Supplier<Operation> setup;
+
+        Case(String name, Supplier<Operation> setup) {
+            this.name = name;
+            this.setup = setup;
+        }
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        List<Case> cases = new ArrayList<>();
+        for (int players : new int[] { 12, 50, 200, 500 }) {
+            cases.add(new Case("Player.checkCollisions/" + players, () -> checkCollisions(players / 2)));
+            cases.add(new Case("MatchSimulation.checkAllCollisions/" + players, () -> checkAllCollisions(players / 2)));
+        }
+        cases.add(new Case("AIController.decideAction", TickBenchmark::decideAction));
+        cases.add(new Case("Ball.move", TickBenchmark::ballMove));
+        cases.add(new Case("BallPredictor.intercept", TickBenchmark::ballIntercept));
+        for (int players : new int[] { 12, 50, 200 }) {
+            cases.add(new Case("PassEvaluator.findReceiver/" + players, () -> findReceiver(players / 2)));
+        }
+        cases.add(new Case("MatchSimulation.checkGoal", TickBenchmark::checkGoal));
+        for (int players : new int[] { 12, 50, 200 }) {
+            cases.add(new Case("PitchControl.update/" + players, () -> pitchControlUpdate(players / 2)));
+        }
+        for (int players : new int[] { 12, 22, 50, 200 }) {
+            cases.add(new Case("MatchSimulation.tick/" + players, () -> fullTick(players / 2)));
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        System.out.printf("%-40s %16s %12s%n", "Benchmark", "ops/s", "B/op");
+        for (Case c : cases) {
+            if (!c.name.contains(filter)) continue;
+            Operation op = c.setup.get();
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                runIteration(op, threads, new long[3]);
+            }
+            long[] totals = new long[3];
+            for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+                runIteration(op, threads, totals);
+            }
+            System.out.printf("%-40s %16.0f %12.1f%n", c.name, totals[0] * 1e9 / totals[1], (double) totals[2] / totals[0]);
+        }
+    }
+
+    private static void runIteration(Operation op, com.sun.management.ThreadMXBean threads, long[] totals) {
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        while (System.nanoTime() < deadline) {
+            op.prepare();
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                op.run();
+            }
+            long elapsed = System.nanoTime() - start;
+            totals[2] += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            totals[0] += BATCH_SIZE;
+            totals[1] += elapsed;
+        }
+    }
+
+    private static MatchSimulation runningMatch(int playersPerTeam) {
+        MatchSimulation match = new MatchSimulation(1L, false, Difficulty.MEDIUM, playersPerTeam);
+        match.transitionToRunningState();
+        for (int i = 0; i < MatchSimulation.TICKS_PER_SECOND * 5; i++) {
+            match.tick();
+        }
+        return match;
+    }
+
+    private static Operation checkCollisions(int playersPerTeam) {
+        MatchSimulation match = runningMatch(playersPerTeam);
+        Ball ball = match.getBall();
+        List<Player> players = match.getAllPlayers();
+        return () -> {
+            for (int i = 0; i < players.size(); i++) {
+                players.get(i).checkCollisions(ball, players);
+            }
+            sink = ball.getX();
+        };
+    }
+
+    private static Operation checkAllCollisions(int playersPerTeam) {
+        MatchSimulation match = runningMatch(playersPerTeam);
+        return () -> {
+            match.checkAllCollisions();
+            sink = match.getBall().getX();
+        };
+    }
+
+    private static Operation decideAction() {
+        MatchSimulation match = runningMatch(MatchSimulation.DEFAULT_PLAYERS_PER_TEAM);
+        AIController ai = match.getAIController();
+        List<Player> aiPlayers = new ArrayList<>();
+        for (Player p : match.getAllPlayers()) {
+            if (!p.isHumanControlled()) aiPlayers.add(p);
+        }
+        return () -> {
+            for (int i = 0; i < aiPlayers.size(); i++) {
+                ai.decideAction(aiPlayers.get(i));
+            }
+            sink = aiPlayers.get(0).getVelX();
+        };
+    }
+
+    private static Operation ballMove() {
+        Ball ball = new Ball(MatchSimulation.PLAYABLE_X + 100, MatchSimulation.PLAYABLE_Y + 100, MatchSimulation.BALL_SIZE, null);
+        ball.setVelocity(9.0, 4.0);
+        return () -> {
+            ball.move();
+            ball.checkWallCollision(MatchSimulation.PLAYABLE_X, MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH,
+                    MatchSimulation.PLAYABLE_Y, MatchSimulation.PLAYABLE_Y + MatchSimulation.PLAYABLE_HEIGHT);
+            if (Math.abs(ball.getVelX()) + Math.abs(ball.getVelY()) < 0.05) {
+                ball.setVelocity(9.0, 4.0);
+            }
+            sink = ball.getX();
+        };
+    }
+
+    private static Operation ballIntercept() {
+        BallPredictor predictor = new BallPredictor();
+        predictor.update(MatchSimulation.PLAYABLE_X + 600, MatchSimulation.PLAYABLE_Y + 200, -11.0, 7.0, MatchSimulation.BALL_SIZE);
+        double[] chaserX = { MatchSimulation.PLAYABLE_X + 100, MatchSimulation.PLAYABLE_X + 450, MatchSimulation.PLAYABLE_X + 800 };
+        int[] next = { 0 };
+        return () -> {
+            int i = next[0]++ % chaserX.length;
+            predictor.intercept(chaserX[i], MatchSimulation.PLAYABLE_Y + 300, 1.6, 18.5);
+            sink = predictor.getInterceptX();
+        };
+    }
+
+    private static Operation findReceiver(int playersPerTeam) {
+        MatchSimulation match = runningMatch(playersPerTeam);
+        PassEvaluator passes = match.getPassEvaluator();
+        Ball ball = match.getBall();
+        List<Player> players = match.getAllPlayers();
+        return () -> {
+            sink = passes.findReceiver(0, ball.getCenterX(), ball.getCenterY(), players.size(), 1.0);
+        };
+    }
+
+    private static Operation pitchControlUpdate(int playersPerTeam) {
+        MatchSimulation match = runningMatch(playersPerTeam);
+        PitchControl pitch = match.getPitchControl();
+        EntityStore entities = match.getEntityStore();
+        int playerCount = match.getAllPlayers().size();
+        return () -> {
+            pitch.update(entities, playerCount);
+            sink = pitch.sample(0, MatchSimulation.PLAYABLE_X, MatchSimulation.PLAYABLE_Y);
+        };
+    }
+
+    private static Operation checkGoal() {
+        MatchSimulation match = runningMatch(MatchSimulation.DEFAULT_PLAYERS_PER_TEAM);
+        return () -> {
+            match.checkGoal();
+            sink = match.getScoreTeam1();
+        };
+    }
+
+    private static Operation fullTick(int playersPerTeam) {
+        return new Operation() {
+            private MatchSimulation match = runningMatch(playersPerTeam);
+
+            @Override
+            public void prepare() {
+                if (match.getRemainingSeconds() * MatchSimulation.TICKS_PER_SECOND <= BATCH_SIZE) {
+                    match = runningMatch(playersPerTeam);
+                }
+            }
+
+            @Override
+            public void run() {
+                match.tick();
+                sink = match.getBall().getX();
+            }
+        };
+    }
+}
@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("auxiliaryclass")
+class BallPredictorTest {
+    private static final int SIZE = MatchSimulation.BALL_SIZE;
+    private static final int MIN_X = MatchSimulation.PLAYABLE_X;
+    private static final int MIN_Y = MatchSimulation.PLAYABLE_Y;
+    private static final int MAX_X = MatchSimulation.PLAYABLE_X + MatchSimulation.PLAYABLE_WIDTH;
+    private static final int MAX_Y = MatchSimulation.PLAYABLE_Y + MatchSimulation.PLAYABLE_HEIGHT;
+
+    @Test
+    void matchesBallMoveBeforeTheFirstBounce() {
+        Random random = new Random(21);
+        for (int round = 0; round < 500; round++) {
+            Ball ball = randomBall(random, 16);
+            BallPredictor predictor = predictorFor(ball);
+            for (int tick = 1; tick <= predictor.getHorizon(); tick++) {
+                ball.move();
+                if (outside(ball)) break;
+                assertEquals(ball.getCenterX(), predictor.centerX(tick), 1e-6, "x at tick " + tick);
+                assertEquals(ball.getCenterY(), predictor.centerY(tick), 1e-6, "y at tick " + tick);
+            }
+        }
+    }
+
+    @Test
+    void tracksBallMoveThroughWallBounces() {
+        Random random = new Random(22);
+        for (int round = 0; round < 500; round++) {
+            Ball ball = randomBall(random, 16);
+            double speed = Math.hypot(ball.getVelX(), ball.getVelY());
+            BallPredictor predictor = predictorFor(ball);
+            int bounces = 0;
+            for (int tick = 1; tick <= predictor.getHorizon(); tick++) {
+                double vx = ball.getVelX();
+                double vy = ball.getVelY();
+                ball.move();
+                ball.checkWallCollision(MIN_X, MAX_X, MIN_Y, MAX_Y);
+                bounces += (Math.signum(vx) != Math.signum(ball.getVelX()) ? 1 : 0) + (Math.signum(vy) != Math.signum(ball.getVelY()) ? 1 : 0);
+                double tolerance = bounces * speed + 1e-6;
+                assertEquals(ball.getCenterX(), predictor.centerX(tick), tolerance, "x at tick " + tick);
+                assertEquals(ball.getCenterY(), predictor.centerY(tick), tolerance, "y at tick " + tick);
+            }
+        }
+    }
+
+    @Test
+    void interceptFindsTheEarliestReachableTick() {
+        Random random = new Random(23);
+        BallPredictor predictor = new BallPredictor();
+        int rounds = 5000;
+        int capped = 0;
+        for (int round = 0; round < rounds; round++) {
+            Ball ball = randomBall(random, 16);
+            predictor.update(ball.getX(), ball.getY(), ball.getVelX(), ball.getVelY(), SIZE);
+            double px = MIN_X + random.nextDouble() * (MAX_X - MIN_X);
+            double py = MIN_Y + random.nextDouble() * (MAX_Y - MIN_Y);
+            double speed = 0.5 + random.nextDouble() * 1.5;
+            double reach = (MatchSimulation.PLAYER_SIZE + SIZE) / 2.0;
+
+            int expected = -1;
+            for (int tick = 0; tick <= predictor.getHorizon(); tick++) {
+                if (Math.hypot(predictor.centerX(tick) - px, predictor.centerY(tick) - py) <= speed * tick + reach) {
+                    expected = tick;
+                    break;
+                }
+            }
+            boolean found = predictor.intercept(px, py, speed, reach);
+            if (found) {
+                assertEquals(expected, predictor.getInterceptTick());
+            } else {
+                capped += expected >= 0 ? 1 : 0;
+                assertEquals(predictor.getStopX(), predictor.getInterceptX(), 1e-9);
+                assertEquals(predictor.getStopY(), predictor.getInterceptY(), 1e-9);
+            }
+        }
+        assertTrue(capped * 100 < rounds, capped + " intercepts lost to the step cap");
+    }
+
+    @Test
+    void ticksToReachXLandsOnTheLine() {
+        Random random = new Random(24);
+        BallPredictor predictor = new BallPredictor();
+        for (int round = 0; round < 5000; round++) {
+            Ball ball = randomBall(random, 16);
+            predictor.update(ball.getX(), ball.getY(), ball.getVelX(), ball.getVelY(), SIZE);
+            double line = MIN_X + SIZE / 2.0 + random.nextDouble() * (MAX_X - MIN_X - SIZE);
+            double ticks = predictor.ticksToReachX(line);
+            if (ticks >= 0) {
+                assertEquals(line, predictor.centerX(ticks), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void restingBallHasNoHorizon() {
+        BallPredictor predictor = new BallPredictor();
+        predictor.update(400, 300, 0, 0, SIZE);
+        assertEquals(0, predictor.getHorizon());
+        assertEquals(-1, predictor.ticksToReachX(200), 0);
+        assertFalse(predictor.intercept(100, 100, 1, 10));
+        assertEquals(400 + SIZE / 2.0, predictor.getInterceptX(), 1e-9);
+    }
+
+    private static Ball randomBall(Random random, double maxSpeed) {
+        double x = MIN_X + random.nextDouble() * (MAX_X - MIN_X - SIZE);
+        double y = MIN_Y + random.nextDouble() * (MAX_Y - MIN_Y - SIZE);
+        Ball ball = new Ball(x, y, SIZE, null);
+        ball.setVelocity((random.nextDouble() * 2 - 1) * maxSpeed, (random.nextDouble() * 2 - 1) * maxSpeed);
+        return ball;
+    }
+
+    private static BallPredictor predictorFor(Ball ball) {
+        BallPredictor predictor = new BallPredictor();
+        predictor.update(ball.getX(), ball.getY(), ball.getVelX(), ball.getVelY(), SIZE);
+        return predictor;
+    }
+
+    private static boolean outside(Ball ball) {
+        return ball.getX() <= MIN_X || ball.getX() >= MAX_X - SIZE || ball.getY() <= MIN_Y || ball.getY() >= MAX_Y - SIZE;
+    }
+}
@@ -0,0 +1,31 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("auxiliaryclass")
+class BatchMatchRunnerTest {
+    @Test
+    void sameSeedReproducesMatch() {
+        for (long seed = 1; seed <= 3; seed++) {
+            assertEquals(outcome(seed), outcome(seed), "seed " + seed);
+        }
+    }
+
+    @Test
+    void differentSeedsProduceDifferentMatches() {
+        Set<String> outcomes = new HashSet<>();
+        for (long seed = 1; seed <= 8; seed++) {
+            outcomes.add(outcome(seed));
+        }
+        assertTrue(outcomes.size() > 1, "eight seeds all produced " + outcomes);
+    }
+
+    private static String outcome(long seed) {
+        MatchSimulation match = BatchMatchRunner.playOut(seed, Difficulty.MEDIUM);
+        return match.getScoreTeam1() + "-" + match.getScoreTeam2() + " pen " + match.getPenaltyScoreTeam1() + "-"
+                + match.getPenaltyScoreTeam2() + " after " + match.getTickCount() + " ticks";
+    }
+}
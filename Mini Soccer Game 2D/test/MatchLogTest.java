@@ -0,0 +1,121 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@SuppressWarnings("auxiliaryclass")
+class MatchLogTest {
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 48;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendedRecordsSurviveReopen() throws IOException {
+        Path path = dir.resolve("history.dat");
+        writeLog(path, 5);
+
+        MatchLog log = reopen(path);
+        assertEquals(5, log.size());
+        assertEquals(5, log.getTotalRecords());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, log.read(i).getTeam1Score());
+        }
+    }
+
+    @Test
+    void tornTailIsQuarantined() throws IOException {
+        Path path = dir.resolve("history.dat");
+        writeLog(path, 5);
+        Files.write(path, new byte[20], StandardOpenOption.APPEND);
+
+        MatchLog log = reopen(path);
+        assertEquals(5, log.size());
+        assertEquals(HEADER_BYTES + 5 * RECORD_BYTES, Files.size(path));
+        assertEquals(20, Files.size(dir.resolve("history.dat.corrupt")));
+    }
+
+    @Test
+    void damagedHeaderKeepsIntactRecords() throws IOException {
+        Path path = dir.resolve("history.dat");
+        writeLog(path, 5);
+        overwrite(path, 0);
+
+        MatchLog log = reopen(path);
+        assertEquals(5, log.size());
+        assertEquals(4, log.read(4).getTeam1Score());
+    }
+
+    @Test
+    void compactionDropsOnlyDamagedRecords() throws IOException {
+        Path path = dir.resolve("history.dat");
+        writeLog(path, 10);
+        overwrite(path, HEADER_BYTES + 3 * RECORD_BYTES + 10);
+
+        MatchLog log = reopen(path);
+        assertEquals(9, log.size());
+        assertEquals(10, log.getTotalRecords());
+        assertEquals(1, log.getDroppedRecords());
+        int[] expected = { 0, 1, 2, 4, 5, 6, 7, 8, 9 };
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], log.read(i).getTeam1Score());
+        }
+        assertEquals(RECORD_BYTES, Files.size(dir.resolve("history.dat.corrupt")));
+        assertFalse(Files.exists(dir.resolve("history.dat.tmp")));
+    }
+
+    @Test
+    void compactedLogKeepsItsTotalAcrossReopens() throws IOException {
+        Path path = dir.resolve("history.dat");
+        writeLog(path, 10);
+        overwrite(path, HEADER_BYTES + 3 * RECORD_BYTES + 10);
+        MatchLog log = reopen(path);
+        log.append(new MatchResult("BRAZIL", 42, "GERMANY", 0));
+        log.sync();
+        log.publish();
+
+        log = reopen(path);
+        assertEquals(10, log.size());
+        assertEquals(11, log.getTotalRecords());
+        assertEquals(42, log.read(9).getTeam1Score());
+    }
+
+    @Test
+    void unpublishedRecordsAreHiddenFromReaders() throws IOException {
+        MatchLog log = new MatchLog(dir.resolve("history.dat"));
+        log.open();
+        log.append(new MatchResult("BRAZIL", 1, "GERMANY", 0));
+        assertEquals(0, log.size());
+        log.publish();
+        assertEquals(1, log.size());
+    }
+
+    private static void writeLog(Path path, int records) throws IOException {
+        MatchLog log = new MatchLog(path);
+        log.open();
+        for (int i = 0; i < records; i++) {
+            log.append(new MatchResult("BRAZIL", i, "GERMANY", 1));
+        }
+        log.sync();
+    }
+
+    private static MatchLog reopen(Path path) throws IOException {
+        MatchLog log = new MatchLog(path);
+        log.open();
+        return log;
+    }
+
+    private static void overwrite(Path path, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 9, 9, 9, 9 }), position);
+        }
+    }
+}
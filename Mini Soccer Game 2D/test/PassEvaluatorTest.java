@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("auxiliaryclass")
+class PassEvaluatorTest {
+    private static final int SIZE = MatchSimulation.PLAYER_SIZE;
+    private static final byte GOALKEEPER = (byte) Player.PlayerRole.GOALKEEPER.ordinal();
+    private static final byte MIDFIELDER = (byte) Player.PlayerRole.MIDFIELDER.ordinal();
+    private static final double OPPONENT_SPEED = 1.0;
+
+    private final EntityStore store = new EntityStore();
+    private final PassEvaluator passes = new PassEvaluator(store);
+
+    @Test
+    void picksAnOpenTeammateAhead() {
+        int passer = add(300, 300, 0, MIDFIELDER);
+        int receiver = add(450, 320, 0, MIDFIELDER);
+        add(300, 100, 1, MIDFIELDER);
+        assertEquals(receiver, findReceiver(passer, Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void ignoresTeammatesBehindThePasser() {
+        int passer = add(300, 300, 0, MIDFIELDER);
+        add(150, 300, 0, MIDFIELDER);
+        assertEquals(-1, findReceiver(passer, Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void neverPassesToTheGoalkeeper() {
+        int passer = add(300, 300, 0, MIDFIELDER);
+        add(400, 300, 0, GOALKEEPER);
+        assertEquals(-1, findReceiver(passer, Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void ignoresTeammatesOutOfRange() {
+        int passer = add(100, 300, 0, MIDFIELDER);
+        add(900, 300, 0, MIDFIELDER);
+        assertEquals(-1, findReceiver(passer, Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void avoidsABlockedLane() {
+        int passer = add(300, 300, 0, MIDFIELDER);
+        int blocked = add(450, 300, 0, MIDFIELDER);
+        int open = add(430, 450, 0, MIDFIELDER);
+        add(380, 300, 1, MIDFIELDER);
+        int receiver = findReceiver(passer, Double.NEGATIVE_INFINITY);
+        assertEquals(open, receiver);
+        assertTrue(receiver != blocked);
+    }
+
+    @Test
+    void minimumSafetyRejectsContestedPasses() {
+        int passer = add(300, 300, 0, MIDFIELDER);
+        add(450, 300, 0, MIDFIELDER);
+        add(380, 300, 1, MIDFIELDER);
+        assertEquals(-1, findReceiver(passer, 8));
+    }
+
+    @Test
+    void prefersTheReceiverFurtherUpfield() {
+        int passer = add(300, 300, 0, MIDFIELDER);
+        add(340, 420, 0, MIDFIELDER);
+        int forward = add(420, 300, 0, MIDFIELDER);
+        assertEquals(forward, findReceiver(passer, Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void nearestOpponentDistanceIgnoresTeammates() {
+        int player = add(300, 300, 0, MIDFIELDER);
+        add(310, 300, 0, MIDFIELDER);
+        add(300, 360, 1, MIDFIELDER);
+        assertEquals(60, passes.nearestOpponentDistance(player, store.count), 1e-9);
+    }
+
+    private int add(double x, double y, int team, byte role) {
+        return store.add(x - SIZE / 2.0, y - SIZE / 2.0, SIZE, (byte) team, role);
+    }
+
+    private int findReceiver(int passer, double minSafety) {
+        return passes.findReceiver(passer, store.x[passer] + SIZE / 2.0, store.y[passer] + SIZE / 2.0, store.count,
+                OPPONENT_SPEED, minSafety);
+    }
+}
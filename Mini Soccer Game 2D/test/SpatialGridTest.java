@@ -0,0 +1,92 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+@SuppressWarnings("auxiliaryclass")
+class SpatialGridTest {
+    private static final double WIDTH = 935;
+    private static final double HEIGHT = 565;
+    private static final double CELL_SIZE = 40;
+
+    @Test
+    void candidatePairsCoverEveryNearbyPairOnce() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int count = 1 + random.nextInt(60);
+            double[] xs = new double[count];
+            double[] ys = new double[count];
+            scatter(random, xs, ys);
+            SpatialGrid grid = new SpatialGrid(0, 0, WIDTH, HEIGHT, CELL_SIZE);
+            grid.build(xs, ys, count);
+
+            Set<Long> pairs = new HashSet<>();
+            grid.forEachCandidatePair((first, second) ->
+                    assertTrue(pairs.add(key(first, second)), "pair " + first + "," + second + " visited twice"));
+            for (int first = 0; first < count; first++) {
+                for (int second = first + 1; second < count; second++) {
+                    if (Math.abs(xs[first] - xs[second]) < CELL_SIZE && Math.abs(ys[first] - ys[second]) < CELL_SIZE) {
+                        assertTrue(pairs.contains(key(first, second)), "missed pair " + first + "," + second + " of " + count);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void queryReturnsEveryPointInsideTheBox() {
+        Random random = new Random(12);
+        for (int round = 0; round < 200; round++) {
+            int count = 1 + random.nextInt(60);
+            double[] xs = new double[count];
+            double[] ys = new double[count];
+            scatter(random, xs, ys);
+            SpatialGrid grid = new SpatialGrid(0, 0, WIDTH, HEIGHT, CELL_SIZE);
+            grid.build(xs, ys, count);
+
+            double minX = random.nextDouble() * WIDTH;
+            double minY = random.nextDouble() * HEIGHT;
+            double maxX = minX + random.nextDouble() * 200;
+            double maxY = minY + random.nextDouble() * 200;
+            Set<Integer> found = new HashSet<>();
+            int results = grid.query(minX, minY, maxX, maxY);
+            for (int i = 0; i < results; i++) {
+                assertTrue(found.add(grid.getQueryResult(i)), "duplicate query result");
+            }
+            for (int i = 0; i < count; i++) {
+                if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) {
+                    assertTrue(found.contains(i), "point " + i + " missing from query");
+                }
+            }
+        }
+    }
+
+    @Test
+    void smallCountsVisitEveryPair() {
+        double[] xs = { 0, 500, 900 };
+        double[] ys = { 0, 300, 500 };
+        SpatialGrid grid = new SpatialGrid(0, 0, WIDTH, HEIGHT, CELL_SIZE);
+        grid.build(xs, ys, xs.length);
+        int[] visits = new int[1];
+        grid.forEachCandidatePair((first, second) -> visits[0]++);
+        assertEquals(3, visits[0]);
+    }
+
+    private static void scatter(Random random, double[] xs, double[] ys) {
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * WIDTH;
+            ys[i] = random.nextDouble() * HEIGHT;
+            if (i > 0 && random.nextInt(4) == 0) {
+                xs[i] = Math.min(WIDTH - 1, xs[i - 1] + random.nextDouble() * CELL_SIZE);
+                ys[i] = Math.min(HEIGHT - 1, ys[i - 1] + random.nextDouble() * CELL_SIZE);
+            }
+        }
+    }
+
+    private static long key(int first, int second) {
+        return ((long) Math.min(first, second) << 32) | Math.max(first, second);
+    }
+}